@@ -0,0 +1,165 @@
+package javataskmanager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade over {@link TaskDAO}. Every call runs on a background thread and
+ * returns a CompletableFuture, so callers such as the Swing event thread never block on
+ * SQLite.
+ *
+ * Writes run one at a time on a single writer thread, so they reach the database in the
+ * order they were submitted; reads run concurrently on virtual threads. A call made
+ * after {@link #close()} returns a future that has failed with a
+ * RejectedExecutionException.
+ */
+public class AsyncTaskDAO {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final TaskDAO taskDao;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Runs the writes in submission order; its queue holds the writes not started yet
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AsyncTaskDAO-write");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs an AsyncTaskDAO that delegates to the given DAO.
+     *
+     * @param taskDao the DAO doing the actual database work
+     */
+    public AsyncTaskDAO(TaskDAO taskDao) {
+        this.taskDao = taskDao;
+    }
+
+    /**
+     * @see TaskDAO#createTask(Task)
+     */
+    public CompletableFuture<String> createTask(Task<Integer> task) {
+        return write(() -> taskDao.createTask(task));
+    }
+
+    /**
+     * @see TaskDAO#createTasks(List)
+     */
+    public CompletableFuture<List<Integer>> createTasks(List<Task<Integer>> tasks) {
+        return write(() -> taskDao.createTasks(tasks));
+    }
+
+    /**
+     * @see TaskDAO#updateTask(Task)
+     */
+    public CompletableFuture<String> updateTask(Task<Integer> task) {
+        return write(() -> taskDao.updateTask(task));
+    }
+
+    /**
+     * @see TaskDAO#updateTasks(List)
+     */
+    public CompletableFuture<String> updateTasks(List<Task<Integer>> tasks) {
+        return write(() -> taskDao.updateTasks(tasks));
+    }
+
+    /**
+     * @see TaskDAO#deleteTask(int)
+     */
+    public CompletableFuture<String> deleteTask(int id) {
+        return write(() -> taskDao.deleteTask(id));
+    }
+
+    /**
+     * @see TaskDAO#deleteTasks(int[])
+     */
+    public CompletableFuture<String> deleteTasks(int[] ids) {
+        return write(() -> taskDao.deleteTasks(ids));
+    }
+
+    /**
+     * @see TaskDAO#findTasks(TaskCriteria)
+     */
+    public CompletableFuture<List<Task<Integer>>> findTasks(TaskCriteria criteria) {
+        return read(() -> taskDao.findTasks(criteria));
+    }
+
+    /**
+     * @see TaskDAO#searchTasks(String, int)
+     */
+    public CompletableFuture<List<Task<Integer>>> searchTasks(String query, int limit) {
+        return read(() -> taskDao.searchTasks(query, limit));
+    }
+
+    /**
+     * @see TaskDAO#searchTasks(String, TaskCriteria, int)
+     */
+    public CompletableFuture<List<Task<Integer>>> searchTasks(String query, TaskCriteria criteria, int limit) {
+        return read(() -> taskDao.searchTasks(query, criteria, limit));
+    }
+
+    /**
+     * @see TaskDAO#getDescription(int)
+     */
+    public CompletableFuture<String> getDescription(int id) {
+        return read(() -> taskDao.getDescription(id));
+    }
+
+    /**
+     * @see TaskDAO#getTasksModifiedSince(long)
+     */
+    public CompletableFuture<TaskDelta> getTasksModifiedSince(long version) {
+        return read(() -> taskDao.getTasksModifiedSince(version));
+    }
+
+    /**
+     * Stops accepting work and waits for the writes already queued to finish. Queued
+     * writes still run; only calls made from now on are rejected.
+     */
+    public void close() {
+        writer.shutdown();
+        executor.shutdown();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.out.println("Timed out waiting for pending database writes");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a write behind every write submitted before it. A failed write does not
+     * stop the ones queued after it.
+     *
+     * @param operation the DAO call to run
+     * @return a future completed with the DAO call's result
+     */
+    private <R> CompletableFuture<R> write(Supplier<R> operation) {
+        return submit(operation, writer);
+    }
+
+    /**
+     * Runs a read on its own virtual thread.
+     *
+     * @param operation the DAO call to run
+     * @return a future completed with the DAO call's result
+     */
+    private <R> CompletableFuture<R> read(Supplier<R> operation) {
+        return submit(operation, executor);
+    }
+
+    private static <R> CompletableFuture<R> submit(Supplier<R> operation, ExecutorService executor) {
+        try {
+            return CompletableFuture.supplyAsync(operation, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package javataskmanager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allocates task IDs from blocks reserved in the database. Only one round-trip is
+ * needed per block, and every instance sharing the database gets disjoint blocks.
+ * {@link #nextIds(int)} takes what is left of the current block and reserves the rest
+ * in one block of its own, so a bulk insert needs at most one round-trip. IDs
+ * left over in a block when the application exits are never used. IDs never go past
+ * Integer.MAX_VALUE: once the database has reserved that far, nextId() throws.
+ */
+public class BlockIdAllocator implements IdAllocator<Integer> {
+
+    private final TaskDAO taskDao;
+    private final int blockSize;
+
+    // Next ID to hand out and the last ID of the current block (guarded by this)
+    private long next = 1;
+    private long end = 0;
+
+    /**
+     * Constructs a BlockIdAllocator.
+     *
+     * @param taskDao the DAO used to reserve blocks
+     * @param blockSize the number of IDs reserved per database round-trip
+     */
+    public BlockIdAllocator(TaskDAO taskDao, int blockSize) {
+        this.taskDao = taskDao;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public synchronized Integer nextId() {
+        if (next > end) {
+            reserve(blockSize);
+        }
+        return (int) next++;
+    }
+
+    @Override
+    public synchronized List<Integer> nextIds(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        while (ids.size() < count && next <= end) {
+            ids.add((int) next++);
+        }
+        int missing = count - ids.size();
+        if (missing > 0) {
+            reserve(Math.max(missing, blockSize));
+            if (end - next + 1 < missing) {
+                throw new IllegalStateException("No task IDs are left");
+            }
+            while (ids.size() < count) {
+                ids.add((int) next++);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Replaces the current block with a newly reserved one.
+     *
+     * @param size the number of IDs to reserve
+     */
+    private void reserve(int size) {
+        long first = taskDao.reserveIdBlock(size);
+        if (first < 0) {
+            throw new IllegalStateException("Could not reserve a block of task IDs");
+        }
+        if (first > Integer.MAX_VALUE) {
+            throw new IllegalStateException("No task IDs are left");
+        }
+        next = first;
+        end = Math.min(first + size - 1, Integer.MAX_VALUE);
+    }
+}
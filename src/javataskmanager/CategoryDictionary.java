@@ -0,0 +1,102 @@
+package javataskmanager;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps category names to small int codes and back.
+ *
+ * Codes are handed out in the order categories are first seen and are never reused, so
+ * they can be stored, grouped and compared in place of the names. Every component that
+ * reads categories (the DAO, the TXT parser, TaskManager and the GUI's categorizer)
+ * shares one dictionary, so each category is held by one canonical String and equal
+ * categories are the same object. Code 0 stands for the null category.
+ *
+ * Thread-safe. Lookups never lock; adding a new category does.
+ */
+public class CategoryDictionary {
+
+    // Code of the null category
+    public static final int NULL_CODE = 0;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+    // Code -> name; replaced, never modified, when a category is added
+    private volatile String[] names = {null};
+
+    /**
+     * Returns the code of a category, adding the category if it is new.
+     *
+     * @param category the category, may be null
+     * @return its code
+     */
+    public int encode(String category) {
+        if (category == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(category);
+        return code != null ? code : add(category);
+    }
+
+    /**
+     * Returns the code of a category without adding it.
+     *
+     * @param category the category, may be null
+     * @return its code, or -1 if the category has never been seen
+     */
+    public int find(String category) {
+        if (category == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(category);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * @param code a code returned by {@link #encode(String)}
+     * @return the canonical name of the category
+     */
+    public String decode(int code) {
+        return names[code];
+    }
+
+    /**
+     * Returns the one shared instance of a category name, adding the category if it is
+     * new. Use it on every category read from outside so equal names share one String.
+     *
+     * @param category the category, may be null
+     * @return the canonical String equal to category
+     */
+    public String canonical(String category) {
+        return decode(encode(category));
+    }
+
+    /**
+     * @return the number of codes handed out, including {@link #NULL_CODE}
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the names indexed by code; the array is never modified
+     */
+    String[] names() {
+        return names;
+    }
+
+    private synchronized int add(String category) {
+        Integer code = codes.get(category);
+        if (code == null) {
+            String[] grown = Arrays.copyOf(names, names.length + 1);
+            code = names.length;
+            grown[code] = category;
+
+            // Publish the name before the code, so a code is never seen without it
+            names = grown;
+            codes.put(category, code);
+        }
+        return code;
+    }
+}
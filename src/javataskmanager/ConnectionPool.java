@@ -0,0 +1,198 @@
+package javataskmanager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small pool of long-lived SQLite connections.
+ *
+ * Connections are opened lazily up to the pool size, configured once with the PRAGMAs
+ * below and then reused. The connection handed out by {@link #getConnection()} returns
+ * itself to the pool when closed, so callers can keep using try-with-resources exactly
+ * as they would with {@link DriverManager#getConnection(String)}.
+ */
+public class ConnectionPool {
+
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+
+    // Applied to every physical connection when it is opened
+    private static final String[] PRAGMAS = {
+        "PRAGMA journal_mode = WAL",
+        "PRAGMA synchronous = NORMAL",
+        "PRAGMA cache_size = -16000", // 16 MB page cache
+        "PRAGMA mmap_size = 268435456", // 256 MB memory-mapped I/O
+        "PRAGMA busy_timeout = 5000"
+    };
+
+    private final String url;
+    private final int maxSize;
+    private final BlockingQueue<Connection> idle;
+    private final List<Connection> opened = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a pool for the given JDBC url and registers a shutdown hook that
+     * closes it when the JVM exits.
+     *
+     * @param url the JDBC url of the database
+     * @param maxSize the maximum number of physical connections to keep open
+     */
+    public ConnectionPool(String url, int maxSize) {
+        this.url = url;
+        this.maxSize = maxSize;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "ConnectionPool-shutdown"));
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if the pool has not reached
+     * its maximum size yet. Closing the returned connection hands it back to the pool.
+     *
+     * @return a pooled connection
+     * @throws SQLException if the pool is closed, a connection could not be opened, or
+     * none became available in time
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        Connection conn = idle.poll();
+        if (conn == null) {
+            conn = openIfBelowMax();
+        }
+        if (conn == null) {
+            try {
+                conn = idle.poll(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            if (conn == null) {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        }
+        return wrap(conn);
+    }
+
+    /**
+     * Closes every idle physical connection. Connections still borrowed are left to
+     * finish their work and closed when they are returned.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            discard(conn);
+        }
+    }
+
+    /**
+     * Opens and configures a new physical connection if the pool still has room.
+     *
+     * @return the new connection, or null if the pool is already full
+     */
+    private synchronized Connection openIfBelowMax() throws SQLException {
+        if (opened.size() >= maxSize) {
+            return null;
+        }
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : PRAGMAS) {
+                stmt.execute(pragma);
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        opened.add(conn);
+        return conn;
+    }
+
+    /**
+     * Returns a physical connection to the pool, undoing any unfinished transaction.
+     *
+     * @param conn the connection to return
+     */
+    private void release(Connection conn) {
+        try {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(conn);
+            return;
+        }
+
+        // Checked and offered under the lock, so close() cannot miss the connection
+        synchronized (this) {
+            if (closed) {
+                discard(conn);
+            } else {
+                idle.offer(conn);
+            }
+        }
+    }
+
+    /**
+     * Closes a physical connection and forgets about it so a fresh one can be opened.
+     *
+     * @param conn the connection to drop
+     */
+    private synchronized void discard(Connection conn) {
+        opened.remove(conn);
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Wraps a physical connection so that close() returns it to the pool instead of
+     * closing it. Every other call is forwarded as-is.
+     *
+     * @param conn the physical connection
+     * @return a single-use handle on the connection
+     */
+    private Connection wrap(Connection conn) {
+        boolean[] released = {false};
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!released[0]) {
+                                released[0] = true;
+                                release(conn);
+                            }
+                            return null;
+                        case "isClosed":
+                            return released[0] || conn.isClosed();
+                        default:
+                            if (released[0] && method.getDeclaringClass() != Object.class) {
+                                throw new SQLException("Connection has been returned to the pool");
+                            }
+                            try {
+                                return method.invoke(conn, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+}
@@ -0,0 +1,169 @@
+package javataskmanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads tasks from CSV written by {@link TaskManager#exportTasksToCSV(String)}: ID,
+ * name, description, completion status and category.
+ *
+ * Records are parsed as in RFC 4180. A field starting with a double quote runs to the
+ * matching closing quote, may hold commas and line breaks, and has its quotes doubled.
+ * Records end at "\r\n", "\n" or "\r". The input is read through a fixed buffer one
+ * record at a time, so memory use does not depend on the file size. Records that are
+ * not tasks are skipped: the header, blank lines, records without exactly five fields
+ * and records whose ID is not a number.
+ *
+ * The export writes a null description or category as an empty field, so an empty one
+ * is read back as null. Names are never null.
+ *
+ * Not thread-safe.
+ */
+final class CsvTaskReader implements Closeable {
+
+    private static final int FIELDS = 5;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final CategoryDictionary categoryDictionary;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    // The record being read
+    private final String[] fields = new String[FIELDS];
+    private int fieldCount;
+    private final StringBuilder field = new StringBuilder();
+
+    /**
+     * @param reader the CSV text
+     * @param categoryDictionary the dictionary categories are made canonical with
+     */
+    CsvTaskReader(Reader reader, CategoryDictionary categoryDictionary) {
+        this.reader = reader;
+        this.categoryDictionary = categoryDictionary;
+    }
+
+    /**
+     * Reads the next task.
+     *
+     * @return the task, or null at the end of the input
+     * @throws IOException if reading fails
+     */
+    Task<Integer> next() throws IOException {
+        while (readRecord()) {
+            if (fieldCount != FIELDS) {
+                continue;
+            }
+            int id;
+            try {
+                id = Integer.parseInt(fields[0].trim());
+            } catch (NumberFormatException e) {
+                continue; // The header, or a broken record
+            }
+            // Null descriptions and categories are exported as empty fields
+            String description = fields[2].isEmpty() ? null : fields[2];
+            String category = fields[4].isEmpty() ? null : categoryDictionary.canonical(fields[4]);
+            return new Task<>(id, fields[1], description, Boolean.parseBoolean(fields[3].trim()), category);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Reads one record into the fields. Fields past the fifth are counted but not kept.
+     *
+     * @return false at the end of the input
+     */
+    private boolean readRecord() throws IOException {
+        fieldCount = 0;
+        field.setLength(0);
+        boolean started = false;
+        boolean quoted = false;
+        while (true) {
+            // Copy runs of plain chars in one go
+            int run = position;
+            while (run < limit && (quoted ? buffer[run] != '"' : !isSpecial(buffer[run]))) {
+                run++;
+            }
+            if (run > position) {
+                field.append(buffer, position, run - position);
+                position = run;
+                started = true;
+                continue;
+            }
+
+            int c = read();
+            if (c < 0) {
+                if (started) {
+                    endField();
+                }
+                return started;
+            }
+            started = true;
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                } else if (peek() == '"') {
+                    field.append('"'); // A doubled quote
+                    position++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                endField();
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    position++;
+                }
+                endField();
+                return true;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private static boolean isSpecial(char c) {
+        return c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+
+    private void endField() {
+        if (fieldCount < FIELDS) {
+            fields[fieldCount] = field.toString();
+        }
+        fieldCount++;
+        field.setLength(0);
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int count;
+        do {
+            count = reader.read(buffer, 0, buffer.length);
+        } while (count == 0);
+        position = 0;
+        limit = Math.max(count, 0);
+        return count > 0;
+    }
+}
@@ -0,0 +1,37 @@
+package javataskmanager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out unique task IDs on the client, so tasks can be created, queued and
+ * bulk-inserted without waiting for the database to generate each key.
+ *
+ * @param <T> the type of the task ID, matching the parameter of {@link Task}
+ */
+public interface IdAllocator<T> {
+
+    /**
+     * Returns an ID that has never been handed out before.
+     *
+     * @return the next ID
+     * @throws IllegalStateException if no ID could be allocated
+     */
+    T nextId();
+
+    /**
+     * Returns several IDs that have never been handed out before. Allocators that
+     * reserve IDs remotely should reserve them all in one round-trip.
+     *
+     * @param count the number of IDs
+     * @return the IDs, in the order they were allocated
+     * @throws IllegalStateException if the IDs could not be allocated
+     */
+    default List<T> nextIds(int count) {
+        List<T> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(nextId());
+        }
+        return ids;
+    }
+}
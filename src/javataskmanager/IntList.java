@@ -0,0 +1,87 @@
+package javataskmanager;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Growable list of ints in a primitive array.
+ */
+final class IntList {
+
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sorts the values in ascending order.
+     */
+    void sort() {
+        Arrays.sort(values, 0, size);
+    }
+
+    /**
+     * Sorts the values with a comparator, keeping equal values in their current order.
+     *
+     * @param comparator compares two values like {@link java.util.Comparator#compare}
+     */
+    void sort(IntBinaryOperator comparator) {
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int from = 0; from < size - width; from += 2 * width) {
+                merge(from, from + width, Math.min(from + 2 * width, size), buffer, comparator);
+            }
+        }
+    }
+
+    /**
+     * Truncates the list to the given range.
+     *
+     * @param from the index of the first value to keep
+     * @param to the index after the last value to keep
+     */
+    void keepRange(int from, int to) {
+        from = Math.min(from, size);
+        to = Math.max(from, Math.min(to, size));
+        System.arraycopy(values, from, values, 0, to - from);
+        size = to - from;
+    }
+
+    /**
+     * Reverses the order of the values.
+     */
+    void reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    // Merges the sorted runs [from, middle) and [middle, to)
+    private void merge(int from, int middle, int to, int[] buffer, IntBinaryOperator comparator) {
+        System.arraycopy(values, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.applyAsInt(buffer[left], buffer[right]) <= 0)) {
+                values[i] = buffer[left++];
+            } else {
+                values[i] = buffer[right++];
+            }
+        }
+    }
+}
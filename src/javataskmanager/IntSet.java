@@ -0,0 +1,144 @@
+package javataskmanager;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Open-addressing hash set of ints, stored in a primitive array so membership checks
+ * and iteration never box.
+ */
+final class IntSet {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    /**
+     * Constructs an empty set.
+     */
+    IntSet() {
+        allocate(MIN_CAPACITY);
+    }
+
+    boolean contains(int key) {
+        int index = slot(key);
+        while (used[index]) {
+            if (keys[index] == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @param key the value to add
+     * @return true if it was not already present
+     */
+    boolean add(int key) {
+        int index = slot(key);
+        while (used[index]) {
+            if (keys[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        used[index] = true;
+        keys[index] = key;
+        if (++size > (mask + 1) * 3 / 4) {
+            rehash((mask + 1) * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @param key the value to remove
+     * @return true if it was present
+     */
+    boolean remove(int key) {
+        int index = slot(key);
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        if (!used[index]) {
+            return false;
+        }
+
+        // Backward-shift deletion, as in IntIntMap
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (used[next]) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[gap] = false;
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Calls the action for every value, in no particular order.
+     *
+     * @param action the action to call
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                action.accept(keys[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the values in ascending order
+     */
+    int[] toSortedArray() {
+        int[] values = new int[size];
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                values[count++] = keys[i];
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                add(oldKeys[i]);
+            }
+        }
+    }
+}
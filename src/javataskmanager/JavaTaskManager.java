@@ -1,5 +1,8 @@
 package javataskmanager;
 
+import java.nio.file.Paths;
+import javax.swing.JOptionPane;
+
 /**
  *
  * @author brdde
@@ -11,18 +14,33 @@ public class JavaTaskManager {
      */
     public static void main(String[] args) {
         
-        // Create Class Instances
-        TaskManager taskManager = new TaskManager();
-        TaskDAO taskDao = new TaskDAO();
-        
-        // Get all tasks from db and add to taskManager instance
-        taskDao.getAllTasks().forEach((task) -> {
-            taskManager.addTask(task);
-        });
+        // Create Class Instances; -Djavataskmanager.offHeapDescriptions=true keeps
+        // descriptions out of the heap
+        TaskManager taskManager = new TaskManager(new CategoryDictionary(),
+                Boolean.getBoolean("javataskmanager.offHeapDescriptions"));
+        TaskDAO taskDao;
+        try {
+            taskDao = new TaskDAO();
+        } catch (IllegalStateException e) {
+            // Do not run against a schema that is missing tables or triggers
+            System.out.println(e.getMessage());
+            JOptionPane.showMessageDialog(null, e.getMessage(), "Java Task Manager", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+            return;
+        }
+        taskDao.setCategoryDictionary(taskManager.getCategoryDictionary());
+
+        // -Djavataskmanager.journalDir=<dir> restores the tasks from a local journal
+        // at startup instead of reading the whole tasks table
+        String journalDir = System.getProperty("javataskmanager.journalDir");
+        TaskJournal journal = journalDir == null ? null : new TaskJournal(Paths.get(journalDir), taskDao);
         
         // Instaniate GUI frame and pass classes as parameters
-        TaskManagerFrame tmf = new TaskManagerFrame(taskManager, taskDao);
+        TaskManagerFrame tmf = new TaskManagerFrame(taskManager, taskDao, journal);
         tmf.setVisible(true);
+
+        // Stream tasks from db into taskManager page by page while the window is open
+        tmf.loadTasks();
         
     }
 
@@ -0,0 +1,146 @@
+package javataskmanager;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Append-only storage for strings in a direct ByteBuffer, encoded as UTF-8.
+ *
+ * The bytes live outside the Java heap, so the collector never copies or scans them;
+ * the heap only holds the buffer object and a handle per string packing its offset and
+ * byte length into a long. Meant for large, rarely read text such as task
+ * descriptions. Growing or compacting the arena allocates a new buffer; the old one is
+ * freed once no reader refers to it any more.
+ */
+final class OffHeapTextArena implements TextArena {
+
+    private static final int MIN_CAPACITY = 64 * 1024;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    // UTF-8 never needs more than three bytes per UTF-16 char
+    private static final int MAX_BYTES_PER_CHAR = 3;
+
+    // Bytes up to the position are in use
+    private ByteBuffer buffer;
+    private long garbage;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * Constructs an empty arena.
+     */
+    OffHeapTextArena() {
+        this(MIN_CAPACITY);
+    }
+
+    private OffHeapTextArena(int capacity) {
+        buffer = ByteBuffer.allocateDirect(Math.max(capacity, MIN_CAPACITY));
+    }
+
+    @Override
+    public long append(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        reserve((long) value.length() * MAX_BYTES_PER_CHAR);
+        int start = buffer.position();
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(value), buffer, true);
+        encoder.flush(buffer);
+        return handle(start, buffer.position() - start);
+    }
+
+    @Override
+    public void release(long handle) {
+        if (handle != NULL) {
+            garbage += length(handle);
+        }
+    }
+
+    @Override
+    public boolean needsCompaction() {
+        return garbage > MIN_CAPACITY && garbage * 2 > buffer.position();
+    }
+
+    @Override
+    public OffHeapTextArena emptyCopy() {
+        return new OffHeapTextArena((int) (buffer.position() - garbage));
+    }
+
+    @Override
+    public long copyFrom(TextArena source, long handle) {
+        if (handle == NULL) {
+            return NULL;
+        }
+        reserve(length(handle));
+        int start = buffer.position();
+        buffer.put(start, ((OffHeapTextArena) source).buffer, offset(handle), length(handle));
+        buffer.position(start + length(handle));
+        return handle(start, length(handle));
+    }
+
+    @Override
+    public Reader reader() {
+        ByteBuffer stored = buffer;
+        return new Reader() {
+            @Override
+            public String get(long handle) {
+                return decode(stored, handle, length(handle));
+            }
+
+            @Override
+            public String getPrefix(long handle, int maxChars) {
+                // maxChars chars take at most four bytes each; a sequence cut off at
+                // the end decodes after the first maxChars chars, so it is dropped
+                String prefix = decode(stored, handle, (int) Math.min(length(handle), 4L * maxChars));
+                return prefix == null || prefix.length() <= maxChars ? prefix : prefix.substring(0, maxChars);
+            }
+        };
+    }
+
+    /**
+     * Decodes the first bytes of a string. Only absolute reads are used, so the buffer
+     * may be read by several threads while it is appended to.
+     */
+    private static String decode(ByteBuffer buffer, long handle, int byteCount) {
+        if (handle == NULL) {
+            return null;
+        }
+        byte[] bytes = new byte[byteCount];
+        buffer.get(offset(handle), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int offset(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private static int length(long handle) {
+        return (int) handle;
+    }
+
+    private static long handle(int offset, int length) {
+        return ((long) offset << 32) | length;
+    }
+
+    /**
+     * Makes sure at least count more bytes fit, moving to a larger buffer if needed.
+     */
+    private void reserve(long count) {
+        if (count > MAX_CAPACITY - buffer.position()) {
+            throw new IllegalStateException("Off-heap text arena is full");
+        }
+        if (count > buffer.remaining()) {
+            long needed = buffer.position() + count;
+            int capacity = (int) Math.min(MAX_CAPACITY, Math.max(needed, buffer.capacity() + (buffer.capacity() >> 1)));
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            grown.put(0, buffer, 0, buffer.position());
+            grown.position(buffer.position());
+            buffer = grown;
+        }
+    }
+}
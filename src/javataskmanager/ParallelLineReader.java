@@ -0,0 +1,237 @@
+package javataskmanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Parses the lines of a text file in parallel.
+ *
+ * The file is memory-mapped and split into chunks of about equal size, each parsed on
+ * the common fork-join pool. A chunk owns the lines that start inside it: it skips the
+ * line running in from the previous chunk and finishes its own last line past its end.
+ * The results of each chunk are handed to a consumer in file order. Chunks are at most
+ * {@value #MAX_CHUNK_SIZE} bytes and only a few per worker are parsed ahead of the
+ * consumer, so memory use does not depend on the file size. Lines are decoded as UTF-8 and
+ * end at "\n", "\r" or "\r\n", as with BufferedReader.readLine; neither byte occurs
+ * inside a multi-byte UTF-8 sequence, so lines can be found before decoding.
+ *
+ * Small files are read as a single chunk on the calling thread.
+ */
+final class ParallelLineReader {
+
+    /**
+     * Parses one line. Each chunk has its own parser, so a parser may keep state
+     * between lines but is never called by two threads at once.
+     *
+     * @param <T> the type of the parsed lines
+     */
+    interface LineParser<T> {
+
+        /**
+         * @param chars a buffer holding the line; only valid during the call
+         * @param from the index of the first char of the line
+         * @param to the index after the last char, before the line terminator
+         * @return the parsed line, or null to skip it
+         */
+        T parse(char[] chars, int from, int to);
+    }
+
+    /**
+     * Receives the results of one chunk.
+     *
+     * @param <T> the type of the parsed lines
+     */
+    interface ChunkConsumer<T> {
+
+        /**
+         * @param results the non-null results of the chunk's parser, in file order
+         * @return false to stop reading
+         */
+        boolean accept(List<T> results);
+    }
+
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+    private static final long MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 64 * 1024;
+
+    // Chunks per worker, so a slow chunk does not hold up the others for long
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Chunks parsed or waiting for the consumer, per worker
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+    private ParallelLineReader() {
+    }
+
+    /**
+     * Parses every line of a file.
+     *
+     * @param <T> the type of the parsed lines
+     * @param file the file
+     * @param parsers creates a parser for each chunk
+     * @param consumer receives the results of each chunk in turn, on the calling thread
+     * @return false if the consumer stopped the reading
+     * @throws IOException if the file cannot be read
+     */
+    static <T> boolean read(Path file, Supplier<LineParser<T>> parsers, ChunkConsumer<T> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int threads = ForkJoinPool.getCommonPoolParallelism();
+            long chunks = Math.max(1, Math.min(size / MIN_CHUNK_SIZE, (long) threads * CHUNKS_PER_THREAD));
+            chunks = Math.max(chunks, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+            if (chunks == 1) {
+                return consumer.accept(readChunk(channel, size, 0, size, parsers.get()));
+            }
+
+            long chunkSize = (size + chunks - 1) / chunks;
+            int maxInFlight = threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+            Deque<ForkJoinTask<List<T>>> tasks = new ArrayDeque<>();
+            long next = 0;
+            try {
+                while (true) {
+                    while (tasks.size() < maxInFlight && next < size) {
+                        long chunkStart = next;
+                        long chunkEnd = Math.min(size, next + chunkSize);
+                        tasks.add(ForkJoinPool.commonPool().submit(() -> readChunk(channel, size, chunkStart, chunkEnd, parsers.get())));
+                        next = chunkEnd;
+                    }
+                    if (tasks.isEmpty()) {
+                        return true;
+                    }
+                    if (!consumer.accept(tasks.remove().get())) {
+                        tasks.forEach(task -> task.cancel(true));
+                        return false;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tasks.forEach(task -> task.cancel(true));
+                throw new IOException("Interrupted while reading " + file, e);
+            } catch (ExecutionException e) {
+                tasks.forEach(task -> task.cancel(true));
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Parses the lines starting in [start, end). Lines may not be longer than about
+     * 2 GB, the most one mapping can hold.
+     */
+    private static <T> List<T> readChunk(FileChannel channel, long size, long start, long end, LineParser<T> parser) throws IOException {
+        // Map from the byte before the chunk, to tell whether a line starts at its first byte
+        long mapStart = Math.max(0, start - 1);
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, Math.min(size - mapStart, Integer.MAX_VALUE));
+        int limit = bytes.capacity();
+        int chunkEnd = (int) (end - mapStart);
+
+        // Unless the chunk starts the file, its first line starts after the first
+        // terminator from the byte before it on. Its last line is the one holding its
+        // last byte, which ends where the next chunk's first line starts.
+        int first = start == 0 ? 0 : nextLine(bytes, 0, limit);
+        List<T> results = new ArrayList<>();
+        if (first >= chunkEnd) {
+            return results;
+        }
+        int last = nextLine(bytes, chunkEnd - 1, limit);
+
+        // Decode the lines in bulk and hand each one to the parser straight from the
+        // char buffer. The bytes are copied to a heap window first: the decoder's fast
+        // path only works on arrays.
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer window = ByteBuffer.allocate(CHAR_BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        int position = first;
+        boolean done = false;
+        while (!done) {
+            int count = Math.min(window.remaining(), last - position);
+            bytes.get(position, window.array(), window.position(), count);
+            window.position(window.position() + count);
+            position += count;
+
+            window.flip();
+            boolean endOfInput = position == last;
+            CoderResult result = decoder.decode(window, chars, endOfInput);
+            if (endOfInput && result.isUnderflow()) {
+                done = !decoder.flush(chars).isOverflow();
+            }
+            window.compact(); // Keeps a char split across windows
+            chars.flip();
+            char[] array = chars.array();
+            int lineStart = 0;
+            int available = chars.limit();
+            for (int i = 0; i < available; i++) {
+                char c = array[i];
+                if (c == '\n' || c == '\r') {
+                    if (c == '\r' && i + 1 == available && !done) {
+                        break; // Its "\n" may not be decoded yet
+                    }
+                    T parsed = parser.parse(array, lineStart, i);
+                    if (parsed != null) {
+                        results.add(parsed);
+                    }
+                    if (c == '\r' && i + 1 < available && array[i + 1] == '\n') {
+                        i++;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (done) {
+                if (lineStart < available) {
+                    // The file's last line has no terminator
+                    T parsed = parser.parse(array, lineStart, available);
+                    if (parsed != null) {
+                        results.add(parsed);
+                    }
+                }
+            } else {
+                // Keep the unfinished line, in a larger buffer if it fills this one. A
+                // surrogate pair does not fit in the last free char, so the decoder can
+                // overflow with the buffer short of full; grow it then too.
+                chars.position(lineStart);
+                if (lineStart == 0 && (available == chars.capacity() || result.isOverflow())) {
+                    chars = CharBuffer.allocate(chars.capacity() * 2).put(chars);
+                } else {
+                    chars.compact();
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the index after the first line terminator at or after from, or limit
+     */
+    private static int nextLine(MappedByteBuffer bytes, int from, int limit) {
+        int i = from;
+        while (i < limit && bytes.get(i) != '\n' && bytes.get(i) != '\r') {
+            i++;
+        }
+        if (i < limit && bytes.get(i) == '\r' && i + 1 < limit && bytes.get(i + 1) == '\n') {
+            i++;
+        }
+        return Math.min(i + 1, limit);
+    }
+}
@@ -0,0 +1,219 @@
+package javataskmanager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only storage for many short strings in one byte array.
+ *
+ * A string whose chars all fit in Latin-1 takes one byte per char, any other string two.
+ * Each string is addressed by a handle that packs its offset, length and encoding into
+ * a long, so a stored string costs its bytes plus eight bytes instead of a String and a
+ * backing array. Bytes are never overwritten: replacing a string appends the new value
+ * and counts the old one as garbage. Growing or compacting the arena copies into a new
+ * array, so an array handed out by {@link #bytes()} stays valid and unchanged for as
+ * long as anyone holds it.
+ */
+final class StringArena implements TextArena {
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private byte[] bytes;
+    private int length;
+    private long garbage;
+
+    /**
+     * Constructs an empty arena.
+     */
+    StringArena() {
+        this(MIN_CAPACITY);
+    }
+
+    private StringArena(int capacity) {
+        bytes = new byte[Math.max(capacity, MIN_CAPACITY)];
+    }
+
+    /**
+     * Appends a string.
+     *
+     * @param value the string, or null
+     * @return the handle of the stored string
+     */
+    @Override
+    public long append(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        int chars = value.length();
+        boolean latin1 = true;
+        for (int i = 0; i < chars && latin1; i++) {
+            latin1 = value.charAt(i) <= 0xFF;
+        }
+
+        int start = reserve(latin1 ? chars : chars * 2);
+        if (latin1) {
+            for (int i = 0; i < chars; i++) {
+                bytes[start + i] = (byte) value.charAt(i);
+            }
+        } else {
+            for (int i = 0; i < chars; i++) {
+                char c = value.charAt(i);
+                bytes[start + 2 * i] = (byte) (c >>> 8);
+                bytes[start + 2 * i + 1] = (byte) c;
+            }
+        }
+        return handle(start, chars, latin1);
+    }
+
+    /**
+     * @param handle the handle of a stored string
+     * @return the string, or null for {@link #NULL}
+     */
+    String get(long handle) {
+        return decode(bytes, handle);
+    }
+
+    /**
+     * Marks a stored string as no longer used, so its bytes are dropped by the next
+     * compaction.
+     *
+     * @param handle the handle of the string
+     */
+    @Override
+    public void release(long handle) {
+        if (handle != NULL) {
+            garbage += byteLength(handle);
+        }
+    }
+
+    /**
+     * @return true if at least half of the arena holds released strings
+     */
+    @Override
+    public boolean needsCompaction() {
+        return garbage > MIN_CAPACITY && garbage * 2 > length;
+    }
+
+    /**
+     * Starts a compacted copy of this arena. Copy every live string across with
+     * {@link #copyFrom(TextArena, long)} and use the new handles from then on.
+     *
+     * @return an empty arena sized for the live strings
+     */
+    @Override
+    public StringArena emptyCopy() {
+        return new StringArena((int) (length - garbage));
+    }
+
+    /**
+     * Appends a string stored in another arena.
+     *
+     * @param source the arena holding the string
+     * @param handle the handle of the string in the source arena
+     * @return the handle of the string in this arena
+     */
+    @Override
+    public long copyFrom(TextArena source, long handle) {
+        if (handle == NULL) {
+            return NULL;
+        }
+        int start = reserve(byteLength(handle));
+        System.arraycopy(((StringArena) source).bytes, offset(handle), bytes, start, byteLength(handle));
+        return handle(start, length(handle), isLatin1(handle));
+    }
+
+    /**
+     * @return the current backing array; its stored bytes never change
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    @Override
+    public Reader reader() {
+        byte[] stored = bytes;
+        return new Reader() {
+            @Override
+            public String get(long handle) {
+                return decode(stored, handle);
+            }
+
+            @Override
+            public String getPrefix(long handle, int maxChars) {
+                if (handle == NULL || length(handle) <= maxChars) {
+                    return decode(stored, handle);
+                }
+                return decode(stored, handle(offset(handle), maxChars, isLatin1(handle)));
+            }
+        };
+    }
+
+    static String decode(byte[] bytes, long handle) {
+        if (handle == NULL) {
+            return null;
+        }
+        if (isLatin1(handle)) {
+            return new String(bytes, offset(handle), length(handle), StandardCharsets.ISO_8859_1);
+        }
+        // Rebuilt from the char units rather than decoded as UTF-16, which would
+        // replace an unpaired surrogate
+        char[] chars = new char[length(handle)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = charAt(bytes, handle, i);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param bytes the backing array
+     * @param handle the handle of a stored string
+     * @param index the index of a char in the string
+     * @return the char
+     */
+    static char charAt(byte[] bytes, long handle, int index) {
+        int offset = offset(handle);
+        if (isLatin1(handle)) {
+            return (char) (bytes[offset + index] & 0xFF);
+        }
+        return (char) (((bytes[offset + 2 * index] & 0xFF) << 8) | (bytes[offset + 2 * index + 1] & 0xFF));
+    }
+
+    /**
+     * @param handle the handle of a stored string
+     * @return its length in chars
+     */
+    static int length(long handle) {
+        return (int) handle >>> 1;
+    }
+
+    private static int offset(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private static boolean isLatin1(long handle) {
+        return (handle & 1) == 0;
+    }
+
+    private static int byteLength(long handle) {
+        return isLatin1(handle) ? length(handle) : length(handle) * 2;
+    }
+
+    private static long handle(int offset, int chars, boolean latin1) {
+        return ((long) offset << 32) | ((long) chars << 1) | (latin1 ? 0 : 1);
+    }
+
+    private int reserve(int count) {
+        if (count > MAX_CAPACITY - length) {
+            throw new IllegalStateException("String arena is full");
+        }
+        int needed = length + count;
+        if (needed > bytes.length) {
+            // Grow by half rather than double: the arena is usually the largest array
+            bytes = Arrays.copyOf(bytes, Math.min(MAX_CAPACITY, Math.max(needed, bytes.length + (bytes.length >> 1))));
+        }
+        int start = length;
+        length = needed;
+        return start;
+    }
+}
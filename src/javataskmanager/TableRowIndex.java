@@ -0,0 +1,110 @@
+package javataskmanager;
+
+import java.util.Arrays;
+
+/**
+ * Index from task IDs to the table model rows showing them.
+ *
+ * Rows are appended and removed one at a time, and a removal moves every later row up
+ * one. Rather than renumbering those rows, each task keeps the slot it was appended
+ * at, and a Fenwick tree over the slots counts the ones still shown before it: that
+ * count is its row. Adding, finding and removing a task each take O(log n), with n the
+ * rows appended since the last {@link #clear()}. Slots of removed rows are only
+ * reclaimed by clear().
+ *
+ * Not thread-safe.
+ */
+final class TableRowIndex {
+
+    private final IntIntMap slotById = new IntIntMap();
+
+    // tree[i] counts the shown slots in (i - lowestOneBit(i), i], one-based
+    private int[] tree = new int[17];
+    private boolean[] shown = new boolean[16];
+    private int slots;
+
+    /**
+     * Appends a row for a task.
+     *
+     * @param id the task ID, not yet shown
+     * @return the row it is shown at
+     */
+    int add(int id) {
+        if (slots == shown.length) {
+            grow();
+        }
+        int slot = slots++;
+        shown[slot] = true;
+        update(slot, 1);
+        slotById.put(id, slot);
+        return count(slot);
+    }
+
+    /**
+     * @param id the task ID
+     * @return the row showing the task, or -1 if it is not shown
+     */
+    int rowOf(int id) {
+        int slot = slotById.get(id, -1);
+        return slot < 0 ? -1 : count(slot);
+    }
+
+    /**
+     * Removes the row of a task; the rows after it move up one.
+     *
+     * @param id the task ID
+     * @return the row the task was shown at, or -1 if it was not shown
+     */
+    int remove(int id) {
+        int slot = slotById.get(id, -1);
+        if (slot < 0) {
+            return -1;
+        }
+        slotById.remove(id);
+        shown[slot] = false;
+        update(slot, -1);
+        return count(slot);
+    }
+
+    /**
+     * Removes every row.
+     */
+    void clear() {
+        slotById.clear();
+        tree = new int[17];
+        shown = new boolean[16];
+        slots = 0;
+    }
+
+    /**
+     * @return the number of shown slots before the given one
+     */
+    private int count(int slot) {
+        int count = 0;
+        for (int i = slot; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    private void update(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Doubles the slots and rebuilds the tree from the shown flags in O(n).
+     */
+    private void grow() {
+        shown = Arrays.copyOf(shown, shown.length * 2);
+        tree = new int[shown.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += shown[i - 1] ? 1 : 0;
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
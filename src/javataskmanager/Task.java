@@ -1,5 +1,7 @@
 package javataskmanager;
 
+import java.util.function.Supplier;
+
 /**
  * Represents a task with a generic ID type.
  *
@@ -7,9 +9,14 @@ package javataskmanager;
  */
 public class Task<T> {
 
+    // Number of characters of the description kept by lazily loaded tasks
+    public static final int DESCRIPTION_PREVIEW_LENGTH = 100;
+
     private T id;
     private String name;
     private String description;
+    private String descriptionPreview;
+    private Supplier<String> descriptionLoader;
     private boolean isComplete;
     private String category;
 
@@ -30,6 +37,26 @@ public class Task<T> {
         this.category = category;
     }
 
+    /**
+     * Constructs a new Task that only holds a preview of its description. The full
+     * description is fetched from the loader each time it is requested.
+     *
+     * @param id the unique identifier for the task
+     * @param name the name of the task
+     * @param descriptionPreview the first characters of the description
+     * @param descriptionLoader supplies the full description on demand
+     * @param completionStatus the completion status of the task (true if completed, false otherwise)
+     * @param category the category of the task
+     */
+    public Task(T id, String name, String descriptionPreview, Supplier<String> descriptionLoader, boolean completionStatus, String category) {
+        this.id = id;
+        this.name = name;
+        this.descriptionPreview = descriptionPreview;
+        this.descriptionLoader = descriptionLoader;
+        this.isComplete = completionStatus;
+        this.category = category;
+    }
+
     // Getters and Setters
     public T getId() {
         return id;
@@ -47,12 +74,51 @@ public class Task<T> {
         this.name = name;
     }
 
+    /**
+     * Returns the full description, fetching it from the loader if this task was
+     * constructed with only a preview.
+     *
+     * @return the description
+     */
     public String getDescription() {
+        if (descriptionLoader != null) {
+            return descriptionLoader.get();
+        }
         return description;
     }
 
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionPreview = null;
+        this.descriptionLoader = null;
+    }
+
+    /**
+     * Returns at most the first {@link #DESCRIPTION_PREVIEW_LENGTH} characters of the
+     * description without loading it.
+     *
+     * @return the description preview
+     */
+    public String getDescriptionPreview() {
+        if (descriptionLoader != null || description == null) {
+            return descriptionPreview;
+        }
+        return description.length() <= DESCRIPTION_PREVIEW_LENGTH ? description : description.substring(0, DESCRIPTION_PREVIEW_LENGTH);
+    }
+
+    /**
+     * @return true if the full description is held by this task rather than loaded on
+     * demand
+     */
+    public boolean isDescriptionLoaded() {
+        return descriptionLoader == null;
+    }
+
+    /**
+     * @return the loader of the full description, or null if it is held by this task
+     */
+    Supplier<String> getDescriptionLoader() {
+        return descriptionLoader;
     }
 
     public boolean isComplete() {
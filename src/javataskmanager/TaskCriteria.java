@@ -0,0 +1,47 @@
+package javataskmanager;
+
+/**
+ * Filter criteria for {@link TaskDAO#findTasks(TaskCriteria)}. Every criterion left as
+ * null matches all tasks.
+ */
+public class TaskCriteria {
+
+    private String category;
+    private Boolean completionStatus;
+    private String namePrefix;
+
+    // Getters and Setters
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @param category the exact category to match, or null for any category
+     */
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public Boolean getCompletionStatus() {
+        return completionStatus;
+    }
+
+    /**
+     * @param completionStatus the completion status to match, or null for both
+     */
+    public void setCompletionStatus(Boolean completionStatus) {
+        this.completionStatus = completionStatus;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    /**
+     * @param namePrefix a case-insensitive (ASCII) prefix of the task name, or null for
+     * any name
+     */
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+}
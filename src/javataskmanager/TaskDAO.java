@@ -2,36 +2,265 @@ package javataskmanager;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object (DAO) class for managing tasks in the SQLite database.
  */
 public class TaskDAO {
 
+    private static final int POOL_SIZE = 4;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int DESCRIPTION_CACHE_SIZE = 256;
+    private static final int ID_BLOCK_SIZE = 100;
+
+    /**
+     * Schema migrations, applied in order. Migration N brings the schema to version N,
+     * which is recorded in SQLite's user_version. Append new migrations to the end and
+     * never edit one that has already shipped.
+     */
+    private static final String[][] MIGRATIONS = {
+        // 1: base table (already present in databases created before migrations existed)
+        {
+            "CREATE TABLE IF NOT EXISTS tasks ("
+            + " id INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + " name TEXT NOT NULL,"
+            + " description TEXT,"
+            + " completion_status INTEGER NOT NULL CHECK (completion_status IN (0, 1)),"
+            + " category TEXT)"
+        },
+        // 2: indexes for category/completion filters and case-insensitive name lookups
+        {
+            "CREATE INDEX IF NOT EXISTS idx_tasks_category_status ON tasks(category, completion_status)",
+            "CREATE INDEX IF NOT EXISTS idx_tasks_status ON tasks(completion_status)",
+            "CREATE INDEX IF NOT EXISTS idx_tasks_name_nocase ON tasks(name COLLATE NOCASE)"
+        },
+        // 3: FTS5 index over name and description, kept in sync with tasks by triggers
+        {
+            "CREATE VIRTUAL TABLE IF NOT EXISTS tasks_fts USING fts5("
+            + " name, description, content='tasks', content_rowid='id',"
+            + " tokenize='unicode61 remove_diacritics 2')",
+            "CREATE TRIGGER IF NOT EXISTS tasks_fts_insert AFTER INSERT ON tasks BEGIN"
+            + " INSERT INTO tasks_fts(rowid, name, description) VALUES (new.id, new.name, new.description);"
+            + " END",
+            "CREATE TRIGGER IF NOT EXISTS tasks_fts_delete AFTER DELETE ON tasks BEGIN"
+            + " INSERT INTO tasks_fts(tasks_fts, rowid, name, description) VALUES ('delete', old.id, old.name, old.description);"
+            + " END",
+            "CREATE TRIGGER IF NOT EXISTS tasks_fts_update AFTER UPDATE OF name, description ON tasks BEGIN"
+            + " INSERT INTO tasks_fts(tasks_fts, rowid, name, description) VALUES ('delete', old.id, old.name, old.description);"
+            + " INSERT INTO tasks_fts(rowid, name, description) VALUES (new.id, new.name, new.description);"
+            + " END",
+            "INSERT INTO tasks_fts(tasks_fts) VALUES ('rebuild')"
+        },
+        // 4: row versions from a single counter, plus tombstones for deleted rows
+        {
+            "ALTER TABLE tasks ADD COLUMN version INTEGER NOT NULL DEFAULT 0",
+            "CREATE INDEX IF NOT EXISTS idx_tasks_version ON tasks(version)",
+            "CREATE TABLE IF NOT EXISTS task_clock (id INTEGER PRIMARY KEY CHECK (id = 1), version INTEGER NOT NULL)",
+            "INSERT OR IGNORE INTO task_clock(id, version) VALUES (1, 0)",
+            "CREATE TABLE IF NOT EXISTS task_tombstones (id INTEGER PRIMARY KEY, version INTEGER NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS idx_task_tombstones_version ON task_tombstones(version)",
+            "CREATE TRIGGER IF NOT EXISTS tasks_version_insert AFTER INSERT ON tasks BEGIN"
+            + " UPDATE task_clock SET version = version + 1 WHERE id = 1;"
+            + " UPDATE tasks SET version = (SELECT version FROM task_clock WHERE id = 1) WHERE id = new.id;"
+            + " DELETE FROM task_tombstones WHERE id = new.id;"
+            + " END",
+            "CREATE TRIGGER IF NOT EXISTS tasks_version_update AFTER UPDATE OF name, description, completion_status, category ON tasks BEGIN"
+            + " UPDATE task_clock SET version = version + 1 WHERE id = 1;"
+            + " UPDATE tasks SET version = (SELECT version FROM task_clock WHERE id = 1) WHERE id = new.id;"
+            + " END",
+            "CREATE TRIGGER IF NOT EXISTS tasks_version_delete AFTER DELETE ON tasks BEGIN"
+            + " UPDATE task_clock SET version = version + 1 WHERE id = 1;"
+            + " INSERT OR REPLACE INTO task_tombstones(id, version) VALUES (old.id, (SELECT version FROM task_clock WHERE id = 1));"
+            + " END"
+        }
+    };
+
+    private static final String INSERT_SQL = "INSERT INTO tasks(id, name, description, completion_status, category) VALUES(?, ?, ?, ?, ?)";
+
+    // Leaves the description untouched when the task only holds a preview of it
+    private static final String UPDATE_SQL = "UPDATE tasks SET name = ?,"
+            + " description = CASE WHEN ? THEN ? ELSE description END,"
+            + " completion_status = ?, category = ? WHERE id = ?";
+
     private final String url = "jdbc:sqlite:task_manager_db.db";
 
+    // Long-lived connections shared by all DAO operations
+    private final ConnectionPool pool;
+
+    // Number of rows sent to SQLite per executeBatch() call in the batch methods
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    // Assigns IDs to new tasks before they are inserted
+    private IdAllocator<Integer> idAllocator = new BlockIdAllocator(this, ID_BLOCK_SIZE);
+
+    // Category names read from the db are swapped for their canonical instances
+    private CategoryDictionary categoryDictionary = new CategoryDictionary();
+
+    // Recently fetched full descriptions of projection-loaded tasks, least recently used first
+    private final Map<Integer, String> descriptionCache = Collections.synchronizedMap(
+            new LinkedHashMap<Integer, String>(DESCRIPTION_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > DESCRIPTION_CACHE_SIZE;
+        }
+    });
+
+    /**
+     * Constructs a TaskDAO backed by a connection pool on the task database and brings
+     * the database schema up to date.
+     *
+     * @throws IllegalStateException if the schema cannot be brought up to date; the
+     * rest of the DAO relies on every migration having been applied
+     */
+    public TaskDAO() {
+        this.pool = new ConnectionPool(url, POOL_SIZE);
+        try {
+            migrate();
+        } catch (SQLException e) {
+            pool.close();
+            throw new IllegalStateException("Schema migration failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies every schema migration newer than the database's user_version. Each
+     * migration runs in its own transaction together with the version bump, so a failed
+     * one leaves the schema at the previous version.
+     *
+     * @throws SQLException if a migration fails
+     */
+    private void migrate() throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            int version;
+            try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                version = rs.next() ? rs.getInt(1) : 0;
+            }
+
+            for (int i = version; i < MIGRATIONS.length; i++) {
+                conn.setAutoCommit(false);
+                try {
+                    for (String sql : MIGRATIONS[i]) {
+                        stmt.execute(sql);
+                    }
+                    stmt.execute("PRAGMA user_version = " + (i + 1));
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
     /**
-     * Creates a new task in the database.
+     * Sets how many rows the batch methods hand to SQLite per executeBatch() call. Each
+     * batch method still runs as a single transaction regardless of this value.
+     *
+     * @param batchSize the chunk size, must be positive
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the allocator that assigns IDs to tasks created without one.
+     *
+     * @param idAllocator the allocator to use
+     */
+    public void setIdAllocator(IdAllocator<Integer> idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
+    public IdAllocator<Integer> getIdAllocator() {
+        return idAllocator;
+    }
+
+    /**
+     * Sets the dictionary whose canonical category strings are put in loaded tasks.
+     * Share the TaskManager's dictionary so loaded tasks don't each hold their own copy.
+     *
+     * @param categoryDictionary the dictionary to use
+     */
+    public void setCategoryDictionary(CategoryDictionary categoryDictionary) {
+        this.categoryDictionary = categoryDictionary;
+    }
+
+    public CategoryDictionary getCategoryDictionary() {
+        return categoryDictionary;
+    }
+
+    /**
+     * Reserves a block of consecutive task IDs by advancing the tasks table's
+     * AUTOINCREMENT counter past it. SQLite never reuses IDs at or below that counter,
+     * so the block can be inserted later with explicit IDs.
+     *
+     * @param size the number of IDs to reserve
+     * @return the first ID of the block, or -1 if the reservation failed
+     */
+    public long reserveIdBlock(int size) {
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            try {
+                stmt.executeUpdate("INSERT INTO sqlite_sequence(name, seq) SELECT 'tasks', 0"
+                        + " WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = 'tasks')");
+                stmt.executeUpdate("UPDATE sqlite_sequence"
+                        + " SET seq = max(seq, (SELECT COALESCE(MAX(id), 0) FROM tasks)) + " + size
+                        + " WHERE name = 'tasks'");
+                long end;
+                try (ResultSet rs = stmt.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'tasks'")) {
+                    rs.next();
+                    end = rs.getLong(1);
+                }
+                conn.commit();
+                return end - size + 1;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Creates a new task in the database. A task without an ID is given one by the
+     * ID allocator first.
      *
      * @param task the task to be created
      * @return String indicating success and the inserted row ID, or returns the error.
      */
     public String createTask(Task<Integer> task) {
-        String sql = "INSERT INTO tasks(name, description, completion_status, category) VALUES(?, ?, ?, ?)";
-        int id;
-        try (Connection conn = DriverManager.getConnection(url); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, task.getName());
-            pstmt.setString(2, task.getDescription());
-            pstmt.setInt(3, task.isComplete() ? 1 : 0);
-            pstmt.setString(4, task.getCategory());
+        try {
+            assignId(task);
+        } catch (IllegalStateException e) {
+            return "Error: " + e.getMessage();
+        }
+
+        try (Connection conn = pool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            bindInsert(pstmt, task);
             pstmt.executeUpdate();
-            id = pstmt.getGeneratedKeys().getInt(1);
         } catch (SQLException e) {
             return "Error: " + e.getMessage();
         }
 
-        return ("Success | " + id);
+        return ("Success | " + task.getId());
     }
 
     /**
@@ -41,19 +270,331 @@ public class TaskDAO {
      */
     public List<Task<Integer>> getAllTasks() {
         List<Task<Integer>> tasks = new ArrayList<>();
-        String sql = "SELECT id, name, description, completion_status, category FROM tasks";
+        String response = forEachTask(tasks::add);
+        if (!response.equals("Success")) {
+            System.out.println(response);
+        }
+        return tasks;
+    }
+
+    /**
+     * Streams every task in the database, in ID order, to the given consumer without
+     * holding the whole table in memory.
+     *
+     * @param consumer receives each task as it is read
+     * @return String indicating success or error.
+     */
+    public String forEachTask(Consumer<Task<Integer>> consumer) {
+        return forEachTaskPage(DEFAULT_PAGE_SIZE, page -> page.forEach(consumer));
+    }
+
+    /**
+     * Reads every task in the database, in ID order, one page at a time. Pages are
+     * fetched with keyset pagination on the ID, so each page is an index range scan and
+     * no read transaction stays open between pages.
+     *
+     * @param pageSize the maximum number of tasks per page
+     * @param pageConsumer receives each page as soon as it has been read
+     * @return String indicating success or error.
+     */
+    public String forEachTaskPage(int pageSize, Consumer<List<Task<Integer>>> pageConsumer) {
+        return forEachPage(pageSize, false, pageConsumer);
+    }
+
+    /**
+     * Like {@link #forEachTaskPage(int, Consumer)}, but only reads a preview of each
+     * description. The full description is fetched by ID when
+     * {@link Task#getDescription()} is called, and recently fetched ones are cached.
+     *
+     * @param pageSize the maximum number of tasks per page
+     * @param pageConsumer receives each page as soon as it has been read
+     * @return String indicating success or error.
+     */
+    public String forEachTaskProjectionPage(int pageSize, Consumer<List<Task<Integer>>> pageConsumer) {
+        return forEachPage(pageSize, true, pageConsumer);
+    }
+
+    /**
+     * Fetches the full descriptions of several tasks in one query. The cache of recently
+     * fetched descriptions is neither read nor filled, as the callers read each
+     * description once.
+     *
+     * @param ids the IDs of the tasks; at most a few thousand, as each is bound as a
+     * parameter
+     * @return the description of each task found, by ID, or null if the read failed
+     */
+    public Map<Integer, String> getDescriptions(int[] ids) {
+        Map<Integer, String> descriptions = new HashMap<>();
+        if (ids.length == 0) {
+            return descriptions;
+        }
+        StringBuilder sql = new StringBuilder("SELECT id, description FROM tasks WHERE id IN (?");
+        for (int i = 1; i < ids.length; i++) {
+            sql.append(", ?");
+        }
+        sql.append(')');
+
+        try (Connection conn = pool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.length; i++) {
+                pstmt.setInt(i + 1, ids[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    descriptions.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+            return descriptions;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Fetches the full description of a task, using the cache of recently fetched
+     * descriptions where possible.
+     *
+     * @param id the ID of the task
+     * @return the description, or null if the task does not exist or the read failed
+     */
+    public String getDescription(int id) {
+        String description = descriptionCache.get(id);
+        if (description != null) {
+            return description;
+        }
+
+        String sql = "SELECT description FROM tasks WHERE id = ?";
+        try (Connection conn = pool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    description = rs.getString(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+
+        if (description != null) {
+            descriptionCache.put(id, description);
+        }
+        return description;
+    }
+
+    /**
+     * Reads the tasks table page by page using keyset pagination on the ID.
+     *
+     * @param pageSize the maximum number of tasks per page
+     * @param projection whether to read only a description preview
+     * @param pageConsumer receives each page as soon as it has been read
+     * @return String indicating success or error.
+     */
+    private String forEachPage(int pageSize, boolean projection, Consumer<List<Task<Integer>>> pageConsumer) {
+        String sql = projection
+                ? "SELECT id, name, substr(description, 1, " + Task.DESCRIPTION_PREVIEW_LENGTH + ") AS description, completion_status, category"
+                + " FROM tasks WHERE id > ? ORDER BY id LIMIT ?"
+                : "SELECT id, name, description, completion_status, category FROM tasks WHERE id > ? ORDER BY id LIMIT ?";
+        int lastId = Integer.MIN_VALUE;
+
+        while (true) {
+            List<Task<Integer>> page = new ArrayList<>(pageSize);
+            try (Connection conn = pool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(pageSize);
+                pstmt.setInt(1, lastId);
+                pstmt.setInt(2, pageSize);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(projection ? mapProjection(rs) : mapTask(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                return "Error: " + e.getMessage();
+            }
+
+            if (page.isEmpty()) {
+                return "Success";
+            }
+            lastId = page.get(page.size() - 1).getId();
+            pageConsumer.accept(page);
+            if (page.size() < pageSize) {
+                return "Success";
+            }
+        }
+    }
+
+    /**
+     * Returns the newest row version in the database. Pass it to
+     * {@link #getTasksModifiedSince(long)} to receive every change made after this call.
+     *
+     * @return the current row version, or -1 if it could not be read
+     */
+    public long getCurrentVersion() {
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT version FROM task_clock WHERE id = 1")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Retrieves every task inserted, updated or deleted after the given row version.
+     * Changed tasks are loaded as projections, like
+     * {@link #forEachTaskProjectionPage(int, Consumer)}. All reads happen in one
+     * transaction, so the delta is a consistent snapshot.
+     *
+     * @param version the version returned by the previous call or by
+     * {@link #getCurrentVersion()}
+     * @return the changes since that version, or null if they could not be read
+     */
+    public TaskDelta getTasksModifiedSince(long version) {
+        String clockSql = "SELECT version FROM task_clock WHERE id = 1";
+        String changedSql = "SELECT id, name, substr(description, 1, " + Task.DESCRIPTION_PREVIEW_LENGTH + ") AS description, completion_status, category"
+                + " FROM tasks WHERE version > ? ORDER BY id";
+        String deletedSql = "SELECT id FROM task_tombstones WHERE version > ? ORDER BY id";
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            long currentVersion;
+            List<Task<Integer>> changed = new ArrayList<>();
+            List<Integer> deleted = new ArrayList<>();
+
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(clockSql)) {
+                currentVersion = rs.next() ? rs.getLong(1) : 0;
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(changedSql)) {
+                pstmt.setLong(1, version);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Task<Integer> task = mapProjection(rs);
+                        descriptionCache.remove(task.getId());
+                        changed.add(task);
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(deletedSql)) {
+                pstmt.setLong(1, version);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        deleted.add(rs.getInt(1));
+                    }
+                }
+            }
+            conn.commit();
+            return new TaskDelta(currentVersion, changed, deleted);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves the tasks matching the given criteria, filtered inside SQLite so the
+     * category, completion and name indexes can be used.
+     *
+     * @param criteria the filters to apply; unset criteria match every task
+     * @return a list of matching tasks in ID order
+     */
+    public List<Task<Integer>> findTasks(TaskCriteria criteria) {
+        StringBuilder sql = new StringBuilder("SELECT id, name, description, completion_status, category FROM tasks WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendCriteria(sql, params, criteria, "");
+        sql.append(" ORDER BY id");
+
+        List<Task<Integer>> tasks = new ArrayList<>();
+        try (Connection conn = pool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    tasks.add(mapTask(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return tasks;
+    }
 
-        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Appends a WHERE condition for each criterion that is set.
+     *
+     * @param sql the statement so far, ending in a WHERE clause
+     * @param params receives the values to bind, in order
+     * @param criteria the filters to apply
+     * @param table the alias of the tasks table followed by a dot, or ""
+     */
+    private static void appendCriteria(StringBuilder sql, List<Object> params, TaskCriteria criteria, String table) {
+        if (criteria.getCategory() != null) {
+            sql.append(" AND ").append(table).append("category = ?");
+            params.add(criteria.getCategory());
+        }
+        if (criteria.getCompletionStatus() != null) {
+            sql.append(" AND ").append(table).append("completion_status = ?");
+            params.add(criteria.getCompletionStatus() ? 1 : 0);
+        }
+        if (criteria.getNamePrefix() != null && !criteria.getNamePrefix().isEmpty()) {
+            // A range on the NOCASE index instead of LIKE, which cannot use it here
+            sql.append(" AND ").append(table).append("name >= ? COLLATE NOCASE AND ")
+                    .append(table).append("name < ? COLLATE NOCASE");
+            params.add(criteria.getNamePrefix());
+            params.add(criteria.getNamePrefix() + Character.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Full-text searches task names and descriptions. Every word in the query must
+     * match, and each word also matches as a prefix, so "rep" finds "report".
+     *
+     * @param query the words to search for
+     * @param limit the maximum number of results
+     * @return the matching tasks, best match first
+     */
+    public List<Task<Integer>> searchTasks(String query, int limit) {
+        return searchTasks(query, new TaskCriteria(), limit);
+    }
+
+    /**
+     * Full-text searches the tasks matching some criteria, like
+     * {@link #searchTasks(String, int)}. The criteria are applied in the same statement,
+     * before the limit, so the limit counts only tasks that pass them.
+     *
+     * @param query the words to search for
+     * @param criteria the filters the matches must also pass
+     * @param limit the maximum number of results
+     * @return the matching tasks, best match first
+     */
+    public List<Task<Integer>> searchTasks(String query, TaskCriteria criteria, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT t.id, t.name, t.description, t.completion_status, t.category"
+                + " FROM tasks_fts f JOIN tasks t ON t.id = f.rowid"
+                + " WHERE tasks_fts MATCH ?");
+        List<Object> params = new ArrayList<>();
+        List<Task<Integer>> tasks = new ArrayList<>();
 
-            while (rs.next()) {
-                Task<Integer> task = new Task<>(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("description"),
-                        rs.getInt("completion_status") == 1,
-                        rs.getString("category")
-                );
-                tasks.add(task);
+        // Quote each word so user input cannot inject FTS5 query syntax, then make it a prefix
+        StringBuilder match = new StringBuilder();
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                match.append(match.length() == 0 ? "" : " ").append('"').append(word).append("\"*");
+            }
+        }
+        if (match.length() == 0) {
+            return tasks;
+        }
+        params.add(match.toString());
+        appendCriteria(sql, params, criteria, "t.");
+        sql.append(" ORDER BY f.rank LIMIT ?");
+        params.add(limit);
+
+        try (Connection conn = pool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    tasks.add(mapTask(rs));
+                }
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -68,15 +609,10 @@ public class TaskDAO {
      * @return String indicating success or error.
      */
     public String updateTask(Task<Integer> task) {
-        String sql = "UPDATE tasks SET name = ?, description = ?, completion_status = ?, category = ? WHERE id = ?";
-
-        try (Connection conn = DriverManager.getConnection(url); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, task.getName());
-            pstmt.setString(2, task.getDescription());
-            pstmt.setInt(3, task.isComplete() ? 1 : 0);
-            pstmt.setString(4, task.getCategory());
-            pstmt.setInt(5, task.getId());
+        try (Connection conn = pool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
+            bindUpdate(pstmt, task);
             pstmt.executeUpdate();
+            descriptionCache.remove(task.getId());
         } catch (SQLException e) {
             return "Error: " + e.getMessage();
         }
@@ -93,13 +629,248 @@ public class TaskDAO {
     public String deleteTask(int id) {
         String sql = "DELETE FROM tasks WHERE id = ?";
 
-        try (Connection conn = DriverManager.getConnection(url); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             pstmt.executeUpdate();
+            descriptionCache.remove(id);
+        } catch (SQLException e) {
+            return "Error: " + e.getMessage();
+        }
+
+        return "Success";
+    }
+
+    /**
+     * Creates several tasks in a single transaction using JDBC batching. Tasks without
+     * an ID are given one by the ID allocator first, all in one allocation.
+     *
+     * @param tasks the tasks to be created
+     * @return the IDs of the tasks in insertion order, or an empty list if the insert
+     * failed
+     */
+    public List<Integer> createTasks(List<Task<Integer>> tasks) {
+        List<Integer> ids = new ArrayList<>(tasks.size());
+        if (tasks.isEmpty()) {
+            return ids;
+        }
+
+        // Allocate IDs before borrowing a connection, as a new block needs one of its
+        // own; the tasks without one share a single block
+        try {
+            int unassigned = 0;
+            for (Task<Integer> task : tasks) {
+                if (task.getId() == null) {
+                    unassigned++;
+                }
+            }
+            List<Integer> newIds = idAllocator.nextIds(unassigned);
+            int next = 0;
+            for (Task<Integer> task : tasks) {
+                if (task.getId() == null) {
+                    task.setId(newIds.get(next++));
+                }
+                ids.add(task.getId());
+            }
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+            ids.clear();
+            return ids;
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+                int pending = 0;
+                for (Task<Integer> task : tasks) {
+                    bindInsert(pstmt, task);
+                    pstmt.addBatch();
+                    if (++pending == batchSize) {
+                        pstmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    pstmt.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            ids.clear();
+        }
+        return ids;
+    }
+
+    /**
+     * Updates several tasks in a single transaction using JDBC batching.
+     *
+     * @param tasks the tasks with updated information
+     * @return String indicating success or error.
+     */
+    public String updateTasks(List<Task<Integer>> tasks) {
+        return applyChanges(tasks, new int[0]);
+    }
+
+    /**
+     * Deletes several tasks by ID in a single transaction using JDBC batching.
+     *
+     * @param ids the IDs of the tasks to be deleted
+     * @return String indicating success or error.
+     */
+    public String deleteTasks(int[] ids) {
+        return applyChanges(new ArrayList<>(), ids);
+    }
+
+    /**
+     * Applies a set of updates and deletes in a single transaction using JDBC batching.
+     * Either every change is committed or none is.
+     *
+     * @param updates the tasks with updated information
+     * @param deleteIds the IDs of the tasks to be deleted
+     * @return String indicating success or error.
+     */
+    public String applyChanges(List<Task<Integer>> updates, int[] deleteIds) {
+        String deleteSql = "DELETE FROM tasks WHERE id = ?";
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (!updates.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
+                        int pending = 0;
+                        for (Task<Integer> task : updates) {
+                            bindUpdate(pstmt, task);
+                            pstmt.addBatch();
+                            if (++pending == batchSize) {
+                                pstmt.executeBatch();
+                                pending = 0;
+                            }
+                        }
+                        if (pending > 0) {
+                            pstmt.executeBatch();
+                        }
+                    }
+                }
+                if (deleteIds.length > 0) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(deleteSql)) {
+                        int pending = 0;
+                        for (int id : deleteIds) {
+                            pstmt.setInt(1, id);
+                            pstmt.addBatch();
+                            if (++pending == batchSize) {
+                                pstmt.executeBatch();
+                                pending = 0;
+                            }
+                        }
+                        if (pending > 0) {
+                            pstmt.executeBatch();
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            for (Task<Integer> task : updates) {
+                descriptionCache.remove(task.getId());
+            }
+            for (int id : deleteIds) {
+                descriptionCache.remove(id);
+            }
         } catch (SQLException e) {
             return "Error: " + e.getMessage();
         }
 
         return "Success";
     }
+
+    /**
+     * Builds a task from the current row of a result set selecting id, name,
+     * description, completion_status and category.
+     *
+     * @param rs the result set positioned on a row
+     * @return the task for that row
+     */
+    private Task<Integer> mapTask(ResultSet rs) throws SQLException {
+        return new Task<>(
+                rs.getInt("id"),
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getInt("completion_status") == 1,
+                categoryDictionary.canonical(rs.getString("category"))
+        );
+    }
+
+    /**
+     * Builds a task holding only a description preview from the current row of a result
+     * set selecting id, name, a description preview aliased as description,
+     * completion_status and category.
+     *
+     * @param rs the result set positioned on a row
+     * @return the task for that row, loading its full description on demand
+     */
+    private Task<Integer> mapProjection(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        return new Task<>(
+                id,
+                rs.getString("name"),
+                rs.getString("description"),
+                () -> getDescription(id),
+                rs.getInt("completion_status") == 1,
+                categoryDictionary.canonical(rs.getString("category"))
+        );
+    }
+
+    /**
+     * Binds a task to {@link #UPDATE_SQL}. The description is only written if the task
+     * holds its full description.
+     *
+     * @param pstmt the statement to bind
+     * @param task the task supplying the values
+     */
+    private void bindUpdate(PreparedStatement pstmt, Task<Integer> task) throws SQLException {
+        boolean writeDescription = task.isDescriptionLoaded();
+        pstmt.setString(1, task.getName());
+        pstmt.setBoolean(2, writeDescription);
+        pstmt.setString(3, writeDescription ? task.getDescription() : null);
+        pstmt.setInt(4, task.isComplete() ? 1 : 0);
+        pstmt.setString(5, task.getCategory());
+        pstmt.setInt(6, task.getId());
+    }
+
+    /**
+     * Binds a task, including its ID, to {@link #INSERT_SQL}.
+     *
+     * @param pstmt the statement to bind
+     * @param task the task supplying the values
+     */
+    private void bindInsert(PreparedStatement pstmt, Task<Integer> task) throws SQLException {
+        pstmt.setInt(1, task.getId());
+        pstmt.setString(2, task.getName());
+        pstmt.setString(3, task.getDescription());
+        pstmt.setInt(4, task.isComplete() ? 1 : 0);
+        pstmt.setString(5, task.getCategory());
+    }
+
+    /**
+     * Gives a task an ID from the ID allocator if it does not have one yet.
+     *
+     * @param task the task to be inserted
+     */
+    private void assignId(Task<Integer> task) {
+        if (task.getId() == null) {
+            task.setId(idAllocator.nextId());
+        }
+    }
+
+    /**
+     * Closes all pooled database connections. Further DAO calls will fail.
+     */
+    public void close() {
+        pool.close();
+    }
 }
@@ -0,0 +1,46 @@
+package javataskmanager;
+
+import java.util.List;
+
+/**
+ * The changes made to the tasks table after a given row version, as returned by
+ * {@link TaskDAO#getTasksModifiedSince(long)}.
+ */
+public class TaskDelta {
+
+    private final long version;
+    private final List<Task<Integer>> changedTasks;
+    private final List<Integer> deletedIds;
+
+    /**
+     * Constructs a new TaskDelta.
+     *
+     * @param version the newest row version covered by this delta
+     * @param changedTasks the tasks inserted or updated since the requested version
+     * @param deletedIds the IDs of the tasks deleted since the requested version
+     */
+    public TaskDelta(long version, List<Task<Integer>> changedTasks, List<Integer> deletedIds) {
+        this.version = version;
+        this.changedTasks = changedTasks;
+        this.deletedIds = deletedIds;
+    }
+
+    /**
+     * @return the version to pass to the next getTasksModifiedSince call
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Task<Integer>> getChangedTasks() {
+        return changedTasks;
+    }
+
+    public List<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public boolean isEmpty() {
+        return changedTasks.isEmpty() && deletedIds.isEmpty();
+    }
+}
@@ -0,0 +1,602 @@
+package javataskmanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps a copy of the tasks held by a {@link TaskManager} in a directory, so the next
+ * start can restore them without scanning the tasks table.
+ *
+ * Every change is appended to a binary journal as it is made; the journal listens to
+ * a subscription to all tasks. Once the journal has grown past the size of the last
+ * snapshot, a background thread starts a new journal and writes every task to a new
+ * compact snapshot, then deletes the older files. {@link #open(TaskManager)}
+ * memory-maps the latest snapshot and replays only the journals written after it. The
+ * row version of the last database delta applied is journaled too, so after opening
+ * only the changes made since need to be read from the database.
+ *
+ * Only changes the database has confirmed are journaled. Edits made in the
+ * TaskManager before their database write has finished are held back: between
+ * {@link #beginWrite(int)} and {@link #endWrite(int)} the changes to that task are not
+ * journaled, snapshots keep the task as it was, and the row version of later deltas is
+ * not recorded either. Once the write has finished, the task is journaled as it then
+ * stands. After a crash the journal therefore restores the last confirmed state, and the
+ * first delta read from the database brings in any write committed just before it.
+ * Files are not forced to disk after each change, and a torn record at the end of a
+ * journal is dropped when it is opened.
+ *
+ * File layout: snapshot-N.bin holds the tasks as of the start of journal-N.bin. Both
+ * are sequences of records, each framed by its payload length and CRC32. A snapshot
+ * starts with a version record followed by one put record per task. A new snapshot is
+ * written to snapshot-N.tmp and renamed once complete; one left by a crash is deleted
+ * on open.
+ */
+public class TaskJournal implements TaskListener, AutoCloseable {
+
+    private static final long SNAPSHOT_CHECK_INTERVAL_MILLIS = 5_000;
+
+    // A journal shorter than this is never worth a snapshot
+    private static final long MIN_SNAPSHOT_JOURNAL_BYTES = 4L * 1024 * 1024;
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte VERSION = 3;
+
+    private static final byte COMPLETE = 1;
+    private static final byte DESCRIPTION_LOADED = 2;
+
+    private final Path directory;
+    private final TaskDAO taskDao;
+    private final ScheduledExecutorService snapshotter;
+
+    // Guarded by this
+    private TaskManager taskManager;
+    private TaskSubscription subscription;
+    private RecordWriter journal;
+    private int generation;
+    private long snapshotBytes;
+    private long recordedVersion = -1;
+
+    // Tasks with database writes pending: the number of writes, and the task as last
+    // journaled (null if absent)
+    private final Map<Integer, Integer> pendingWrites = new HashMap<>();
+    private final Map<Integer, Task<Integer>> confirmedTasks = new HashMap<>();
+    private long deferredVersion = -1;
+
+    /**
+     * Constructs a journal kept in a directory. Nothing is read or written before
+     * {@link #open(TaskManager)}.
+     *
+     * @param directory the directory of the journal and snapshot files; created if
+     * missing
+     * @param taskDao loads the full descriptions of restored tasks that only had a
+     * preview when they were journaled
+     */
+    public TaskJournal(Path directory, TaskDAO taskDao) {
+        this.directory = directory;
+        this.taskDao = taskDao;
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TaskJournal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Restores the tasks from the latest snapshot and the journals after it into a
+     * TaskManager, then starts journaling its changes. Call it before anything else
+     * writes to the TaskManager.
+     *
+     * @param taskManager the TaskManager to restore and journal
+     * @return the row version of the last database delta applied before the previous
+     * run ended, to pass to {@link TaskDAO#getTasksModifiedSince(long)}; -1 if nothing
+     * was restored and the tasks must be loaded from the database. Files without a
+     * version cannot be brought up to date, so they are deleted and nothing is restored
+     * from them.
+     * @throws IOException if the directory cannot be read or the journal cannot be
+     * opened for writing
+     */
+    public synchronized long open(TaskManager taskManager) throws IOException {
+        if (this.taskManager != null) {
+            throw new IllegalStateException("Journal is already open");
+        }
+        Files.createDirectories(directory);
+
+        // A snapshot still being written when the previous run ended is incomplete
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "snapshot-*.tmp")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+
+        // Restore from the newest complete snapshot and every journal since
+        TreeSet<Integer> snapshots = generations("snapshot-");
+        int base = snapshots.isEmpty() ? 0 : snapshots.last();
+        Replay replay = new Replay(taskManager.getCategoryDictionary());
+        if (!snapshots.isEmpty()) {
+            replay.read(snapshotPath(base));
+            snapshotBytes = Files.size(snapshotPath(base));
+        }
+        generation = base;
+        long validJournalBytes = 0;
+        for (int journalGeneration : generations("journal-").tailSet(base)) {
+            validJournalBytes = replay.read(journalPath(journalGeneration));
+            generation = journalGeneration;
+        }
+        if (replay.version < 0) {
+            // Start over; the tasks loaded from the database are journaled afresh
+            for (int old : generations("snapshot-")) {
+                Files.deleteIfExists(snapshotPath(old));
+            }
+            for (int old : generations("journal-")) {
+                Files.deleteIfExists(journalPath(old));
+            }
+            generation = 0;
+            snapshotBytes = 0;
+            validJournalBytes = 0;
+        } else {
+            taskManager.addTasks(new ArrayList<>(replay.tasks.values()));
+        }
+
+        // Carry on in the newest journal, after its last complete record
+        FileChannel channel = FileChannel.open(journalPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validJournalBytes);
+        channel.position(validJournalBytes);
+        journal = new RecordWriter(channel);
+        recordedVersion = replay.version;
+
+        this.taskManager = taskManager;
+        subscription = taskManager.subscribe(new TaskQuery(), this);
+        snapshotter.scheduleWithFixedDelay(this::checkpoint, SNAPSHOT_CHECK_INTERVAL_MILLIS,
+                SNAPSHOT_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return replay.version;
+    }
+
+    /**
+     * Records that a database write for a task has been started. Until the matching
+     * {@link #endWrite(int)}, changes to the task are not journaled. Call it before
+     * applying the change to the TaskManager.
+     *
+     * @param id the task ID
+     */
+    public void beginWrite(int id) {
+        TaskManager restored;
+        synchronized (this) {
+            restored = taskManager;
+        }
+        if (restored == null) {
+            return;
+        }
+        Task<Integer> confirmed = restored.getTask(id);
+        synchronized (this) {
+            if (pendingWrites.merge(id, 1, Integer::sum) == 1) {
+                confirmedTasks.put(id, confirmed);
+            }
+        }
+    }
+
+    /**
+     * Records that a database write for a task has finished. Once no write for the task
+     * is pending, it is journaled as it stands in the TaskManager. Call it after the
+     * TaskManager holds the outcome of the write, e.g. after undoing a failed edit.
+     *
+     * @param id the task ID
+     */
+    public void endWrite(int id) {
+        TaskManager restored;
+        synchronized (this) {
+            restored = taskManager;
+        }
+        if (restored == null) {
+            return;
+        }
+        Task<Integer> current = restored.getTask(id);
+        synchronized (this) {
+            Integer count = pendingWrites.get(id);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                pendingWrites.put(id, count - 1);
+                return;
+            }
+            pendingWrites.remove(id);
+            confirmedTasks.remove(id);
+            if (journal == null) {
+                return;
+            }
+            try {
+                if (current != null) {
+                    journal.put(current);
+                } else {
+                    journal.remove(id);
+                }
+                if (pendingWrites.isEmpty() && deferredVersion > recordedVersion) {
+                    journal.version(deferredVersion);
+                    journal.flush();
+                    recordedVersion = deferredVersion;
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void taskInserted(Task<Integer> task) {
+        if (journal != null && !pendingWrites.containsKey(task.getId())) {
+            try {
+                journal.put(task);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    @Override
+    public void taskUpdated(Task<Integer> task) {
+        taskInserted(task);
+    }
+
+    @Override
+    public synchronized void taskRemoved(Task<Integer> task) {
+        if (journal != null && !pendingWrites.containsKey(task.getId())) {
+            try {
+                journal.remove(task.getId());
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void deltaApplied(long version) {
+        if (!pendingWrites.isEmpty()) {
+            // A write still pending may be part of the delta; see endWrite
+            deferredVersion = version;
+            return;
+        }
+        if (journal != null && version != recordedVersion) {
+            try {
+                journal.version(version);
+                journal.flush();
+                recordedVersion = version;
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Stops journaling and writes the changes still buffered. The files are kept for
+     * the next {@link #open(TaskManager)}.
+     */
+    @Override
+    public void close() {
+        // Let a snapshot in progress finish first; it needs the monitor to rotate
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (subscription != null) {
+                subscription.close();
+            }
+            if (journal != null) {
+                try {
+                    journal.flush();
+                    journal.channel.close();
+                } catch (IOException e) {
+                    System.out.println("An error occurred while closing the task journal: " + e.getMessage());
+                }
+                journal = null;
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered changes and, once the journal has outgrown the last snapshot,
+     * writes a new snapshot. Runs on the snapshot thread.
+     */
+    private void checkpoint() {
+        int oldGeneration;
+        long snapshotVersion;
+        synchronized (this) {
+            if (journal == null) {
+                return;
+            }
+            try {
+                journal.flush();
+                if (journal.channel.position() < Math.max(MIN_SNAPSHOT_JOURNAL_BYTES, snapshotBytes)) {
+                    return;
+                }
+
+                // Later changes go to a new journal; every change in the old ones is in
+                // the TaskManager already, so the snapshot read below covers them
+                journal.channel.close();
+                oldGeneration = generation;
+                generation++;
+                journal = new RecordWriter(FileChannel.open(journalPath(generation),
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+                snapshotVersion = recordedVersion;
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+        }
+
+        // The snapshot may include a few changes that are in the new journal too;
+        // replaying them again leaves the same tasks
+        Path temporary = directory.resolve("snapshot-" + (oldGeneration + 1) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                RecordWriter writer = new RecordWriter(channel);
+                writer.version(snapshotVersion);
+                List<Task<Integer>> tasks = taskManager.getTasks();
+
+                // Tasks with writes pending keep their confirmed state. Any task whose
+                // write finished after getTasks() is journaled again by endWrite.
+                Map<Integer, Task<Integer>> confirmed;
+                synchronized (this) {
+                    confirmed = new HashMap<>(confirmedTasks);
+                }
+                for (Task<Integer> task : tasks) {
+                    if (!confirmed.containsKey(task.getId())) {
+                        writer.put(task);
+                    }
+                }
+                for (Task<Integer> task : confirmed.values()) {
+                    if (task != null) {
+                        writer.put(task);
+                    }
+                }
+                writer.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, snapshotPath(oldGeneration + 1), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                snapshotBytes = Files.size(snapshotPath(oldGeneration + 1));
+            }
+            for (int old : generations("snapshot-").headSet(oldGeneration + 1)) {
+                Files.deleteIfExists(snapshotPath(old));
+            }
+            for (int old : generations("journal-").headSet(oldGeneration + 1)) {
+                Files.deleteIfExists(journalPath(old));
+            }
+        } catch (IOException e) {
+            // The old snapshot and journals are still complete, so nothing is lost
+            System.out.println("An error occurred while writing a task snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops journaling after a write error. The files written so far stay valid.
+     */
+    private void fail(IOException e) {
+        System.out.println("An error occurred while writing the task journal: " + e.getMessage());
+        try {
+            journal.channel.close();
+        } catch (IOException ignored) {
+            // Already failing
+        }
+        journal = null;
+    }
+
+    private Path snapshotPath(int generation) {
+        return directory.resolve("snapshot-" + generation + ".bin");
+    }
+
+    private Path journalPath(int generation) {
+        return directory.resolve("journal-" + generation + ".bin");
+    }
+
+    /**
+     * @param prefix the file name prefix, "snapshot-" or "journal-"
+     * @return the generations of the complete files with that prefix
+     */
+    private TreeSet<Integer> generations(String prefix) throws IOException {
+        TreeSet<Integer> found = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*.bin")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    found.add(Integer.parseInt(name.substring(prefix.length(), name.length() - ".bin".length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Encodes records into a buffer and writes it to a channel when full or flushed.
+     */
+    private static final class RecordWriter {
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private int recordStart;
+
+        RecordWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void put(Task<Integer> task) throws IOException {
+            // Tasks whose description would have to be fetched from the database keep
+            // only their preview; the restored task loads the rest on demand
+            boolean loaded = task.isDescriptionLoaded() || TaskStore.hasStoredDescription(task);
+            byte[] name = bytes(task.getName());
+            byte[] description = bytes(loaded ? task.getDescription() : task.getDescriptionPreview());
+            byte[] category = bytes(task.getCategory());
+            begin(1 + 4 + 1 + 12 + length(name) + length(description) + length(category));
+            buffer.put(PUT);
+            buffer.putInt(task.getId());
+            buffer.put((byte) ((task.isComplete() ? COMPLETE : 0) | (loaded ? DESCRIPTION_LOADED : 0)));
+            putBytes(name);
+            putBytes(description);
+            putBytes(category);
+            end();
+        }
+
+        void remove(int id) throws IOException {
+            begin(1 + 4);
+            buffer.put(REMOVE);
+            buffer.putInt(id);
+            end();
+        }
+
+        void version(long version) throws IOException {
+            begin(1 + 8);
+            buffer.put(VERSION);
+            buffer.putLong(version);
+            end();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        // Makes room for a record and leaves space for its length and CRC
+        private void begin(int payloadLength) throws IOException {
+            if (buffer.remaining() < payloadLength + 8) {
+                flush();
+                if (buffer.capacity() < payloadLength + 8) {
+                    buffer = ByteBuffer.allocate(payloadLength + 8);
+                }
+            }
+            recordStart = buffer.position();
+            buffer.position(recordStart + 8);
+        }
+
+        // Fills in the length and CRC of the record just written
+        private void end() {
+            int payloadLength = buffer.position() - recordStart - 8;
+            crc.reset();
+            crc.update(buffer.array(), recordStart + 8, payloadLength);
+            buffer.putInt(recordStart, payloadLength);
+            buffer.putInt(recordStart + 4, (int) crc.getValue());
+        }
+
+        private static byte[] bytes(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static int length(byte[] bytes) {
+            return bytes == null ? 0 : bytes.length;
+        }
+
+        private void putBytes(byte[] bytes) {
+            if (bytes == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(bytes.length);
+                buffer.put(bytes);
+            }
+        }
+    }
+
+    /**
+     * Applies the records of snapshot and journal files to an ordered map of tasks.
+     */
+    private final class Replay {
+
+        private final CategoryDictionary categoryDictionary;
+        private final CRC32 crc = new CRC32();
+        final Map<Integer, Task<Integer>> tasks = new LinkedHashMap<>();
+        long version = -1;
+
+        Replay(CategoryDictionary categoryDictionary) {
+            this.categoryDictionary = categoryDictionary;
+        }
+
+        /**
+         * Memory-maps a file and applies its records, stopping at the first torn or
+         * corrupt one.
+         *
+         * @param file the file
+         * @return the length of the complete records at the start of the file
+         */
+        long read(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Journal file too large to map: " + file);
+                }
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (mapped.remaining() >= 8) {
+                    int start = mapped.position();
+                    int payloadLength = mapped.getInt();
+                    int checksum = mapped.getInt();
+                    if (payloadLength < 1 || payloadLength > mapped.remaining()) {
+                        return start;
+                    }
+                    crc.reset();
+                    crc.update(mapped.slice(start + 8, payloadLength));
+                    if ((int) crc.getValue() != checksum) {
+                        return start;
+                    }
+                    apply(mapped);
+                    mapped.position(start + 8 + payloadLength);
+                }
+                return mapped.position();
+            }
+        }
+
+        private void apply(ByteBuffer record) {
+            byte type = record.get();
+            if (type == PUT) {
+                int id = record.getInt();
+                byte flags = record.get();
+                String name = getString(record);
+                String description = getString(record);
+                String category = categoryDictionary.canonical(getString(record));
+                boolean complete = (flags & COMPLETE) != 0;
+                tasks.put(id, (flags & DESCRIPTION_LOADED) != 0
+                        ? new Task<>(id, name, description, complete, category)
+                        : new Task<>(id, name, description, () -> taskDao.getDescription(id), complete, category));
+            } else if (type == REMOVE) {
+                tasks.remove(record.getInt());
+            } else if (type == VERSION) {
+                version = record.getLong();
+            }
+        }
+
+        private String getString(ByteBuffer record) {
+            int length = record.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            record.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
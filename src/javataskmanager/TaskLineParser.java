@@ -0,0 +1,181 @@
+package javataskmanager;
+
+import java.io.IOException;
+
+/**
+ * Parses the lines written by {@link TaskManager#saveTasksToFile(String)}:
+ * id|name|description|completion status|category.
+ *
+ * A backslash escapes the next char: "\|" and "\\" stand for a literal pipe and
+ * backslash, "\n" and "\r" for line breaks. A backslash before any other char is kept
+ * as is, so older files without escapes still parse the same unless they contain one of
+ * those four pairs. Each field is trimmed like String.trim before it is unescaped.
+ *
+ * The line is scanned once, in place. Apart from the task and its three strings, no
+ * objects are allocated per line: field bounds and unescaped chars go to buffers
+ * reused across lines. One parser per thread.
+ */
+final class TaskLineParser implements ParallelLineReader.LineParser<Task<Integer>> {
+
+    private static final int FIELDS = 5;
+
+    private final CategoryDictionary categoryDictionary;
+
+    // Start and end of each field in the line, and whether it contains a backslash
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private final boolean[] escaped = new boolean[FIELDS];
+
+    // Unescaped chars of the field being decoded
+    private char[] scratch = new char[256];
+
+    /**
+     * @param categoryDictionary the dictionary categories are made canonical with
+     */
+    TaskLineParser(CategoryDictionary categoryDictionary) {
+        this.categoryDictionary = categoryDictionary;
+    }
+
+    /**
+     * Parses a task from a line.
+     *
+     * @param chars a buffer holding the line
+     * @param from the index of the first char of the line
+     * @param to the index after its last char
+     * @return the parsed task, or null if the format is invalid
+     */
+    @Override
+    public Task<Integer> parse(char[] chars, int from, int to) {
+        int field = 0;
+        starts[0] = from;
+        escaped[0] = false;
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            if (c == '\\') {
+                escaped[field] = true;
+                i++; // The escaped char is never a separator
+            } else if (c == '|') {
+                if (field == FIELDS - 1) {
+                    return null; // Too many fields
+                }
+                ends[field++] = i;
+                starts[field] = i + 1;
+                escaped[field] = false;
+            }
+        }
+        if (field != FIELDS - 1) {
+            return null; // Too few fields
+        }
+        ends[field] = to;
+
+        for (int f = 0; f < FIELDS; f++) {
+            trim(chars, f);
+        }
+        long id = parseId(chars);
+        if (id == Long.MIN_VALUE) {
+            return null; // Invalid number format
+        }
+        return new Task<>((int) id, field(chars, 1), field(chars, 2), parseBoolean(chars, 3),
+                categoryDictionary.canonical(field(chars, 4)));
+    }
+
+    /**
+     * Writes a string as a field of a task line, escaping backslashes, pipes and line
+     * breaks so {@link #parse(char[], int, int)} reads back the same string. Null is written
+     * as "null", as before escaping was added.
+     *
+     * @param value the string
+     * @param writer the writer
+     * @throws IOException if writing fails
+     */
+    static void escape(String value, TextFileWriter writer) throws IOException {
+        if (value == null) {
+            writer.append("null");
+            return;
+        }
+        int from = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            char escape = c == '\\' ? '\\' : c == '|' ? '|' : c == '\n' ? 'n' : c == '\r' ? 'r' : 0;
+            if (escape != 0) {
+                writer.append(value, from, i).append('\\').append(escape);
+                from = i + 1;
+            }
+        }
+        writer.append(value, from, value.length());
+    }
+
+    // Drop leading and trailing chars up to ' ', as String.trim does
+    private void trim(char[] chars, int field) {
+        while (starts[field] < ends[field] && chars[starts[field]] <= ' ') {
+            starts[field]++;
+        }
+        while (ends[field] > starts[field] && chars[ends[field] - 1] <= ' ') {
+            ends[field]--;
+        }
+    }
+
+    /**
+     * Parses the ID field like Integer.parseInt.
+     *
+     * @return the ID, or Long.MIN_VALUE if it is not a valid int
+     */
+    private long parseId(char[] chars) {
+        int i = starts[0];
+        int end = ends[0];
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(chars[i], 10);
+            if (digit < 0) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return Long.MIN_VALUE;
+            }
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }
+
+    // True only for "true" in any case, as Boolean.parseBoolean
+    private boolean parseBoolean(char[] chars, int field) {
+        int i = starts[field];
+        return ends[field] - i == 4
+                && Character.toLowerCase(chars[i]) == 't' && Character.toLowerCase(chars[i + 1]) == 'r'
+                && Character.toLowerCase(chars[i + 2]) == 'u' && Character.toLowerCase(chars[i + 3]) == 'e';
+    }
+
+    // Returns a field as a string, unescaping it in the scratch buffer if needed
+    private String field(char[] chars, int field) {
+        if (!escaped[field]) {
+            return new String(chars, starts[field], ends[field] - starts[field]);
+        }
+        if (scratch.length < ends[field] - starts[field]) {
+            scratch = new char[Math.max(ends[field] - starts[field], scratch.length * 2)];
+        }
+        char[] unescaped = scratch;
+        int count = 0;
+        for (int i = starts[field]; i < ends[field]; i++) {
+            char c = chars[i];
+            if (c == '\\' && i + 1 < ends[field]) {
+                char next = chars[i + 1];
+                char original = next == '\\' ? '\\' : next == '|' ? '|' : next == 'n' ? '\n' : next == 'r' ? '\r' : 0;
+                if (original != 0) {
+                    c = original;
+                    i++;
+                }
+            }
+            unescaped[count++] = c;
+        }
+        return new String(unescaped, 0, count);
+    }
+}
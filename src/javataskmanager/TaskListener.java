@@ -0,0 +1,44 @@
+package javataskmanager;
+
+/**
+ * Receives the changes to the result set of a query subscribed to with
+ * {@link TaskManager#subscribe(TaskQuery, TaskListener)}.
+ *
+ * Events are delivered in the order the changes were made, after TaskManager's lock
+ * has been released, so a listener may read from and write to the TaskManager. They
+ * arrive on the thread that made the change, or on another writing thread that is
+ * delivering events at the time.
+ */
+public interface TaskListener {
+
+    /**
+     * A task entered the result set: it was added, or it changed and now matches.
+     *
+     * @param task the task
+     */
+    void taskInserted(Task<Integer> task);
+
+    /**
+     * A task in the result set changed and still matches.
+     *
+     * @param task the new version of the task
+     */
+    void taskUpdated(Task<Integer> task);
+
+    /**
+     * A task left the result set: it was removed, or it changed and no longer matches.
+     *
+     * @param task the task; for a removal, its last version
+     */
+    void taskRemoved(Task<Integer> task);
+
+    /**
+     * A delta read from the database was applied with
+     * {@link TaskManager#applyDelta(TaskDelta)}; the events for its changes came before
+     * this one. Sent to every subscription, whatever its query.
+     *
+     * @param version the row version of the delta
+     */
+    default void deltaApplied(long version) {
+    }
+}
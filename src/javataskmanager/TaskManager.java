@@ -8,75 +8,723 @@ package javataskmanager;
  *
  * @author brdde
  */
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
 
 /**
  * Manages a list of tasks, providing methods to add, update, remove, filter, and export
  * tasks.
+ *
+ * Tasks are indexed by ID, category, completion status and name trigrams. Change a
+ * stored task by passing a new or modified copy to {@link #updateTask(Task)}, so the
+ * indexes follow. Views can subscribe to a query to hear about the changes to its
+ * result set. Tasks are stored column by column in a {@link TaskStore}; every Task returned is a
+ * new object built from the columns.
+ *
+ * All methods are thread-safe. Writes are serialized by a StampedLock; {@link #getTasks()}
+ * returns an immutable snapshot, so exports, searches and table rebuilds read a
+ * consistent view without locking while writers carry on.
  */
 public class TaskManager {
 
-    private List<Task<Integer>> tasks = new ArrayList<>();
+    // Number of imported tasks persisted per transaction
+    private static final int IMPORT_BATCH_SIZE = 10_000;
+
+    // Number of tasks the exports write per query for their full descriptions
+    private static final int EXPORT_PAGE_SIZE = 1_000;
+
+    // Writers hold the write lock; index readers hold the read lock
+    private final StampedLock lock = new StampedLock();
+
+    // Immutable copy of the tasks handed out by getTasks(), rebuilt after a write
+    private volatile List<Task<Integer>> snapshot = Collections.emptyList();
+
+    // Category codes, shared with the DAO and the GUI
+    private final CategoryDictionary categoryDictionary;
+
+    // The tasks themselves, one primitive column per field; see TaskStore
+    private final TaskStore store;
+
+    // Case-folded trigrams of the task names -> IDs, for substring name searches
+    private final TrigramIndex nameIndex = new TrigramIndex();
+
+    // Subscribed queries; changed under the write lock
+    private final List<TaskSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // Events queued under the write lock, in the order of the changes, and delivered
+    // by one thread at a time once the lock is released
+    private final Queue<Runnable> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock deliveryLock = new ReentrantLock();
+
+    // Category index, maintained on every add, update and remove: category code -> IDs
+    // of its tasks (its size is the category's task count). The completion index is the
+    // store's completion column.
+    private final List<IntSet> idsByCategory = new ArrayList<>();
+
+    /**
+     * Constructs an empty TaskManager with its own category dictionary.
+     */
+    public TaskManager() {
+        this(new CategoryDictionary());
+    }
+
+    /**
+     * Constructs an empty TaskManager.
+     *
+     * @param categoryDictionary the dictionary to encode categories with; share it with
+     * the DAO so both hand out the same category strings
+     */
+    public TaskManager(CategoryDictionary categoryDictionary) {
+        this(categoryDictionary, false);
+    }
+
+    /**
+     * Constructs an empty TaskManager, optionally keeping task descriptions off-heap.
+     * Off-heap descriptions are stored as UTF-8 in direct buffers, which shrinks the
+     * heap and the work of the garbage collector when descriptions are long. Each is
+     * decoded only when {@link Task#getDescription()} is called on a returned task.
+     *
+     * @param categoryDictionary the dictionary to encode categories with; share it with
+     * the DAO so both hand out the same category strings
+     * @param offHeapDescriptions true to keep descriptions off-heap
+     */
+    public TaskManager(CategoryDictionary categoryDictionary, boolean offHeapDescriptions) {
+        this.categoryDictionary = categoryDictionary;
+        this.store = new TaskStore(categoryDictionary, offHeapDescriptions);
+    }
+
+    public CategoryDictionary getCategoryDictionary() {
+        return categoryDictionary;
+    }
 
-    // Add a task
+    // Add a task; a task with an ID that is already present replaces it in place
     public void addTask(Task<Integer> task) {
-        tasks.add(task);
+        long stamp = lock.writeLock();
+        try {
+            add(task);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        deliverEvents();
     }
 
-    // Get all tasks
+    // Add several tasks under a single lock acquisition
+    public void addTasks(List<Task<Integer>> tasks) {
+        long stamp = lock.writeLock();
+        try {
+            tasks.forEach(this::add);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        deliverEvents();
+    }
+
+    /**
+     * Gets all tasks in insertion order. The returned list is an immutable snapshot: it
+     * never changes, so it can be iterated without locking while other threads keep
+     * writing. The snapshot is shared until the next write.
+     *
+     * @return the tasks at the time of the call
+     */
     public List<Task<Integer>> getTasks() {
-        return tasks;
+        List<Task<Integer>> tasks = snapshot;
+        if (tasks != null) {
+            return tasks;
+        }
+
+        long stamp = lock.readLock();
+        try {
+            tasks = store.snapshot();
+
+            // Published under the read lock, so no write can have invalidated it meanwhile
+            snapshot = tasks;
+            return tasks;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Get a task by ID, or null if there is none
+    public Task<Integer> getTask(Integer taskId) {
+        long stamp = lock.readLock();
+        try {
+            return find(taskId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     // Update a task by ID
     public void updateTask(Task<Integer> updatedTask) {
-        for (int i = 0; i < tasks.size(); i++) {
-            Task<Integer> task = tasks.get(i);
-            if (task.getId().equals(updatedTask.getId())) {
-                tasks.set(i, updatedTask);
-                return;
-            }
+        long stamp = lock.writeLock();
+        try {
+            update(updatedTask);
+        } finally {
+            lock.unlockWrite(stamp);
         }
+        deliverEvents();
     }
 
     // Remove a task by ID
     public void removeTask(Integer taskId) {
-        tasks.removeIf(task -> task.getId().equals(taskId));
+        long stamp = lock.writeLock();
+        try {
+            remove(taskId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        deliverEvents();
     }
 
     /**
-     * Saves tasks to a text file and returns file properties.
+     * Returns the categories of all tasks, read from the category index.
+     *
+     * @return a copy of the categories, in the order they first appeared
+     */
+    public Set<String> getCategories() {
+        long stamp = lock.readLock();
+        try {
+            Set<String> categories = new LinkedHashSet<>();
+            for (int code = 0; code < idsByCategory.size(); code++) {
+                if (!idsByCategory.get(code).isEmpty()) {
+                    categories.add(categoryDictionary.decode(code));
+                }
+            }
+            return categories;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of tasks in each category, read from the category index.
+     *
+     * @return a map from category to task count
+     */
+    public Map<String, Integer> getCategoryCounts() {
+        long stamp = lock.readLock();
+        try {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (int code = 0; code < idsByCategory.size(); code++) {
+                if (!idsByCategory.get(code).isEmpty()) {
+                    counts.put(categoryDictionary.decode(code), idsByCategory.get(code).size());
+                }
+            }
+            return counts;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the tasks in a category using the category index, without scanning the
+     * other tasks.
+     *
+     * @param category the category
+     * @return the tasks in that category, in insertion order
+     */
+    public List<Task<Integer>> getTasksInCategory(String category) {
+        return getTasksInCategory(categoryDictionary.find(category));
+    }
+
+    /**
+     * Returns the tasks in a category using the category index, without scanning the
+     * other tasks.
+     *
+     * @param code the category's code in the category dictionary
+     * @return the tasks in that category, in insertion order
+     */
+    public List<Task<Integer>> getTasksInCategory(int code) {
+        long stamp = lock.readLock();
+        try {
+            if (code < 0 || code >= idsByCategory.size()) {
+                return new ArrayList<>();
+            }
+            IntSet ids = idsByCategory.get(code);
+            int[] categorySlots = new int[ids.size()];
+            int[] count = {0};
+            ids.forEach(id -> categorySlots[count[0]++] = store.slotOf(id));
+            Arrays.sort(categorySlots);
+
+            List<Task<Integer>> result = new ArrayList<>(categorySlots.length);
+            for (int slot : categorySlots) {
+                result.add(store.get(slot));
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the tasks that are not complete, using the completion index.
+     *
+     * @return the incomplete tasks, in insertion order
+     */
+    public List<Task<Integer>> getIncompleteTasks() {
+        long stamp = lock.readLock();
+        try {
+            List<Task<Integer>> result = new ArrayList<>(store.size() - store.completedCount());
+            for (int slot = store.nextIncompleteSlot(0); slot >= 0; slot = store.nextIncompleteSlot(slot + 1)) {
+                result.add(store.get(slot));
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs a query. The planner starts from the index expected to yield the fewest
+     * candidates: the ID index, then whichever is smallest of the category's entry in
+     * the category index, the shortest posting list of the name trigram index, and a
+     * scan of the completed tasks (or of all tasks). Each
+     * candidate is then checked against the remaining criteria straight from the
+     * columns, without building a task. An unsorted query with a limit stops scanning
+     * as soon as it has enough results.
+     *
+     * @param query the query
+     * @return the matching tasks as an immutable list; each task is built as it is read
+     */
+    public List<Task<Integer>> query(TaskQuery query) {
+        long stamp = lock.readLock();
+        try {
+            return store.snapshot(plan(query));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds the tasks whose names contain a query, ignoring case, using the trigram
+     * index over task names.
+     *
+     * @param query the substring to look for
+     * @return the matching tasks, in insertion order
+     */
+    public List<Task<Integer>> searchByName(String query) {
+        TaskQuery nameQuery = new TaskQuery();
+        nameQuery.setNameContains(query);
+        return query(nameQuery);
+    }
+
+    // Get the number of completed tasks
+    public int getCompletedCount() {
+        long stamp = lock.readLock();
+        try {
+            return store.completedCount();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Applies a delta read from the database: changed tasks are added or replace the
+     * local copy, deleted tasks are removed. The whole delta is applied atomically.
+     *
+     * @param delta the changes to apply
+     * @return the number of tasks whose visible fields (name, description preview,
+     * completion status or category) changed, were added or were removed
+     */
+    public int applyDelta(TaskDelta delta) {
+        int visibleChanges = 0;
+        long stamp = lock.writeLock();
+        try {
+            for (Task<Integer> changed : delta.getChangedTasks()) {
+                Task<Integer> existing = find(changed.getId());
+                if (existing == null) {
+                    add(changed);
+                    visibleChanges++;
+                } else {
+                    if (!Objects.equals(existing.getName(), changed.getName())
+                            || !Objects.equals(existing.getDescriptionPreview(), changed.getDescriptionPreview())
+                            || existing.isComplete() != changed.isComplete()
+                            || !Objects.equals(existing.getCategory(), changed.getCategory())) {
+                        visibleChanges++;
+                    }
+                    update(changed);
+                }
+            }
+            for (Integer id : delta.getDeletedIds()) {
+                if (find(id) != null) {
+                    remove(id);
+                    visibleChanges++;
+                }
+            }
+            long version = delta.getVersion();
+            subscriptions.forEach(subscription -> queueEvent(subscription, listener -> listener.deltaApplied(version)));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        deliverEvents();
+        return visibleChanges;
+    }
+
+    /**
+     * Subscribes to the result set of a query. Only the query's criteria apply; its
+     * sort, offset and limit are ignored. The listener hears about every task that
+     * enters, changes within or leaves the result set from now on, so a view built from
+     * {@link TaskSubscription#getInitialTasks()} can be kept current with work
+     * proportional to the number of changes, without running the query again.
+     *
+     * @param query the query
+     * @param listener receives the changes
+     * @return the subscription; close it to stop the events
+     */
+    public TaskSubscription subscribe(TaskQuery query, TaskListener listener) {
+        TaskQuery criteria = query.criteriaOnly();
+        long stamp = lock.writeLock();
+        try {
+            // Encode rather than find the category, so tasks that get it later still match
+            int code = criteria.getCategory() == null ? -1 : categoryDictionary.encode(criteria.getCategory());
+            TaskSubscription subscription = new TaskSubscription(this, criteria, listener, code, store.snapshot(plan(criteria)));
+            subscriptions.add(subscription);
+            return subscription;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a subscription. Called by {@link TaskSubscription#close()}.
+     *
+     * @param subscription the subscription
+     */
+    void unsubscribe(TaskSubscription subscription) {
+        long stamp = lock.writeLock();
+        try {
+            subscriptions.remove(subscription);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // The methods below expect the caller to hold the lock
+
+    private Task<Integer> find(Integer taskId) {
+        int slot = store.slotOf(taskId);
+        return slot < 0 ? null : store.get(slot);
+    }
+
+    private void add(Task<Integer> task) {
+        snapshot = null;
+        int slot = store.slotOf(task.getId());
+        if (slot >= 0) {
+            replace(slot, task);
+            return;
+        }
+        slot = store.add(task);
+        index(slot);
+        nameIndex.add(task.getId(), task.getName());
+        queueEvents(null, slot);
+    }
+
+    private void update(Task<Integer> updatedTask) {
+        int slot = store.slotOf(updatedTask.getId());
+        if (slot >= 0) {
+            snapshot = null;
+            replace(slot, updatedTask);
+        }
+    }
+
+    private void remove(Integer taskId) {
+        int slot = store.slotOf(taskId);
+        if (slot >= 0) {
+            snapshot = null;
+            boolean[] matchedBefore = subscriptionsMatching(slot);
+            if (matchedBefore != null) {
+                Task<Integer> removed = store.get(slot);
+                for (int i = 0; i < matchedBefore.length; i++) {
+                    if (matchedBefore[i]) {
+                        queueEvent(subscriptions.get(i), listener -> listener.taskRemoved(removed));
+                    }
+                }
+            }
+            unindex(slot);
+            nameIndex.remove(taskId, store.name(slot));
+            store.remove(slot);
+        }
+    }
+
+    /**
+     * Replaces the task in a slot, moving it between index entries if its category or
+     * name changed.
+     */
+    private void replace(int slot, Task<Integer> task) {
+        boolean[] matchedBefore = subscriptionsMatching(slot);
+        String oldName = store.name(slot);
+        unindex(slot);
+        store.set(slot, task);
+        index(slot);
+        if (!Objects.equals(oldName, task.getName())) {
+            nameIndex.remove(task.getId(), oldName);
+            nameIndex.add(task.getId(), task.getName());
+        }
+        queueEvents(matchedBefore, slot);
+    }
+
+    /**
+     * @param slot the slot of a live task
+     * @return for each subscription, whether the task matches it, or null if there are
+     * no subscriptions
+     */
+    private boolean[] subscriptionsMatching(int slot) {
+        if (subscriptions.isEmpty()) {
+            return null;
+        }
+        boolean[] matching = new boolean[subscriptions.size()];
+        for (int i = 0; i < matching.length; i++) {
+            TaskSubscription subscription = subscriptions.get(i);
+            matching[i] = matches(slot, subscription.getQuery(), subscription.getCategoryCode(),
+                    subscription.getQuery().getFoldedNameContains());
+        }
+        return matching;
+    }
+
+    /**
+     * Queues an event for every subscription whose result set the task in a slot
+     * entered, changed within or left.
+     *
+     * @param matchedBefore the subscriptions the task matched before the change, or
+     * null if it did not exist
+     * @param slot the slot of the task after the change
+     */
+    private void queueEvents(boolean[] matchedBefore, int slot) {
+        boolean[] matchesNow = subscriptionsMatching(slot);
+        if (matchesNow == null) {
+            return;
+        }
+        Task<Integer> task = store.get(slot);
+        for (int i = 0; i < matchesNow.length; i++) {
+            boolean before = matchedBefore != null && matchedBefore[i];
+            if (!before && matchesNow[i]) {
+                queueEvent(subscriptions.get(i), listener -> listener.taskInserted(task));
+            } else if (before && matchesNow[i]) {
+                queueEvent(subscriptions.get(i), listener -> listener.taskUpdated(task));
+            } else if (before) {
+                queueEvent(subscriptions.get(i), listener -> listener.taskRemoved(task));
+            }
+        }
+    }
+
+    // Queue an event, to be dropped if the subscription is closed before delivery
+    private void queueEvent(TaskSubscription subscription, Consumer<TaskListener> event) {
+        pendingEvents.add(() -> {
+            if (!subscription.isClosed()) {
+                event.accept(subscription.getListener());
+            }
+        });
+    }
+
+    /**
+     * Delivers the queued events, unless another thread already is. Must be called
+     * without holding the lock, after every write.
+     */
+    private void deliverEvents() {
+        while (!pendingEvents.isEmpty() && deliveryLock.tryLock()) {
+            try {
+                Runnable event;
+                while ((event = pendingEvents.poll()) != null) {
+                    event.run();
+                }
+            } finally {
+                deliveryLock.unlock();
+            }
+        }
+    }
+
+    // Add the task in a slot to the category index
+    private void index(int slot) {
+        int code = store.categoryCode(slot);
+        while (idsByCategory.size() <= code) {
+            idsByCategory.add(new IntSet());
+        }
+        idsByCategory.get(code).add(store.id(slot));
+    }
+
+    // Remove the task in a slot from the category index
+    private void unindex(int slot) {
+        idsByCategory.get(store.categoryCode(slot)).remove(store.id(slot));
+    }
+
+    /**
+     * Plans and runs a query, as described in {@link #query(TaskQuery)}.
+     *
+     * @param query the query
+     * @return the slots of the matching tasks, sorted, offset and limited
+     */
+    private IntList plan(TaskQuery query) {
+        IntList found = new IntList();
+        String name = query.getFoldedNameContains();
+        int code = query.getCategory() == null ? -1 : categoryDictionary.find(query.getCategory());
+        if (query.getCategory() != null && (code < 0 || code >= idsByCategory.size())) {
+            return found; // No task has ever had that category
+        }
+
+        // Estimate the number of candidates each usable index would yield
+        int categorySize = code < 0 ? Integer.MAX_VALUE : idsByCategory.get(code).size();
+        IntSet[] postings = null;
+        int nameSize = Integer.MAX_VALUE;
+        if (name != null && name.length() >= 3) {
+            postings = nameIndex.postingsFor(name);
+            if (postings == null) {
+                return found; // Some trigram of the query occurs in no name
+            }
+            nameSize = postings[0].size();
+        }
+        Boolean complete = query.getCompletionStatus();
+        int scanSize = Boolean.TRUE.equals(complete) ? store.completedCount() : store.size();
+
+        int end = (int) Math.min((long) query.getOffset() + query.getLimit(), Integer.MAX_VALUE);
+        if (query.getId() != null) {
+            int slot = store.slotOf(query.getId());
+            if (slot >= 0 && matches(slot, query, code, name)) {
+                found.add(slot);
+            }
+        } else if (categorySize <= nameSize && categorySize <= scanSize) {
+            idsByCategory.get(code).forEach(id -> {
+                int slot = store.slotOf(id);
+                if (matches(slot, query, code, name)) {
+                    found.add(slot);
+                }
+            });
+            found.sort();
+        } else if (nameSize <= scanSize) {
+            IntSet[] lists = postings;
+            lists[0].forEach(id -> {
+                for (int i = 1; i < lists.length; i++) {
+                    if (!lists[i].contains(id)) {
+                        return;
+                    }
+                }
+                // Every trigram is present, but not necessarily in order (or it collided)
+                int slot = store.slotOf(id);
+                if (matches(slot, query, code, name)) {
+                    found.add(slot);
+                }
+            });
+            found.sort();
+        } else {
+            // Scan in slot order; without a sort, stop once the requested page is full
+            boolean inOrder = query.getSort() == TaskQuery.Sort.INSERTION_ORDER && !query.isDescending();
+            int slot = complete == null ? store.nextLiveSlot(0) : complete ? store.nextCompletedSlot(0) : store.nextIncompleteSlot(0);
+            while (slot >= 0 && !(inOrder && found.size() >= end)) {
+                if (matches(slot, query, code, name)) {
+                    found.add(slot);
+                }
+                slot = complete == null ? store.nextLiveSlot(slot + 1) : complete ? store.nextCompletedSlot(slot + 1) : store.nextIncompleteSlot(slot + 1);
+            }
+        }
+
+        switch (query.getSort()) {
+            case ID:
+                found.sort((a, b) -> Integer.compare(store.id(a), store.id(b)));
+                break;
+            case NAME:
+                found.sort(store::compareNames);
+                break;
+            default:
+                break; // Slots are in insertion order already
+        }
+        if (query.isDescending()) {
+            found.reverse();
+        }
+        found.keepRange(query.getOffset(), end);
+        return found;
+    }
+
+    /**
+     * Checks the task in a slot against every criterion of a query.
+     *
+     * @param slot the slot of a live task
+     * @param query the query
+     * @param code the code of the query's category, or -1 for any
+     * @param name the query's case-folded name substring, or null for any
+     * @return true if the task matches
+     */
+    private boolean matches(int slot, TaskQuery query, int code, String name) {
+        return (query.getId() == null || store.id(slot) == query.getId())
+                && (code < 0 || store.categoryCode(slot) == code)
+                && (query.getCompletionStatus() == null || store.isComplete(slot) == query.getCompletionStatus())
+                && (name == null || store.nameContains(slot, name));
+    }
+
+    /**
+     * Saves tasks to a text file and returns file properties. Every task must hold its
+     * full description; see {@link #saveTasksToFile(String, TaskQuery, TaskDAO)}.
      *
      * @param fileName the name of the file to save tasks to
      * @return String containing file properties if file creation was successful, or the
      * error message if not.
      */
     public String saveTasksToFile(String fileName) {
-        try (OutputStream os = new FileOutputStream(fileName)) {
-            for (Task<Integer> task : tasks) {
-                String taskString = task.getId() + "|"
-                        + task.getName() + "|"
-                        + task.getDescription() + "|"
-                        + String.valueOf(task.isComplete()) + "|"
-                        + task.getCategory() + System.lineSeparator();
-                os.write(taskString.getBytes());
+        return saveTasksToFile(fileName, new TaskQuery(), null);
+    }
+
+    /**
+     * Saves tasks to a text file and returns file properties.
+     *
+     * @param fileName the name of the file to save tasks to
+     * @param taskDao reads the full descriptions the tasks do not hold
+     * @return String containing file properties if file creation was successful, or the
+     * error message if not.
+     */
+    public String saveTasksToFile(String fileName, TaskDAO taskDao) {
+        return saveTasksToFile(fileName, new TaskQuery(), taskDao);
+    }
+
+    /**
+     * Saves the tasks matching a query to a UTF-8 text file and returns file properties.
+     * Each task is one line of pipe-separated fields; pipes, backslashes and line breaks
+     * in the fields are escaped as described in {@link TaskLineParser}. Descriptions that
+     * are only held as a preview are read from the database in one pass; if that fails,
+     * so does the export.
+     *
+     * @param fileName the name of the file to save tasks to
+     * @param query selects and orders the tasks to save
+     * @param taskDao reads the full descriptions the tasks do not hold; may be null if
+     * every task holds its own
+     * @return String containing file properties if file creation was successful, or the
+     * error message if not.
+     */
+    public String saveTasksToFile(String fileName, TaskQuery query, TaskDAO taskDao) {
+        Path filePath = Paths.get(fileName);
+        String lineSeparator = System.lineSeparator();
+        try {
+            // Streamed straight from the columns into one buffered UTF-8 writer
+            try (TextFileWriter writer = new TextFileWriter(filePath)) {
+                writeWithDescriptions(query(query), taskDao, (task, description) -> {
+                    writer.append(task.getId()).append('|');
+                    TaskLineParser.escape(task.getName(), writer);
+                    writer.append('|');
+                    TaskLineParser.escape(description, writer);
+                    writer.append('|').append(task.isComplete()).append('|');
+                    TaskLineParser.escape(task.getCategory(), writer);
+                    writer.append(lineSeparator);
+                });
             }
 
             // Get file properties
-            Path filePath = Paths.get(fileName);
             BasicFileAttributes attrs = Files.readAttributes(filePath, BasicFileAttributes.class);
 
             return "Tasks saved to file: " + fileName
@@ -90,70 +738,161 @@ public class TaskManager {
     }
 
     /**
-     * Imports tasks from a text file.
+     * Imports tasks from a UTF-8 text file and persists them in bulk. The file is
+     * memory-mapped and, when large, parsed on several threads. The tasks are persisted
+     * in file order, in batches of {@value #IMPORT_BATCH_SIZE}, each in one transaction,
+     * as their chunk of the file is parsed, so only a few chunks are held in memory at a
+     * time. If a batch fails, the batches before it stay imported. The imported tasks
+     * receive new database IDs; IDs in the file are ignored.
+     *
+     * The batches are written on the DAO's writer thread, in turn with the other writes,
+     * and the calling thread waits for each; call it off the EDT.
      *
      * @param file the uploaded file to import tasks from
+     * @param asyncDao the DAO used to persist the imported tasks
      * @return String containing a success message if import was successful, or the error
      * message if not.
      */
-    public String importTasksFromFile(File file) {
-        try (InputStream is = new FileInputStream(file); BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                Task<Integer> task = parseTask(line);
-                if (task != null) {
-                    addTask(task);
+    public String importTasksFromFile(File file, AsyncTaskDAO asyncDao) {
+        int[] importedCount = {0};
+        boolean saved;
+        try {
+            // Large files are parsed in parallel chunks, handed over in file order
+            saved = ParallelLineReader.read(file.toPath(), () -> new TaskLineParser(categoryDictionary), chunk -> {
+                for (int from = 0; from < chunk.size(); from += IMPORT_BATCH_SIZE) {
+                    List<Task<Integer>> batch = new ArrayList<>(chunk.subList(from, Math.min(chunk.size(), from + IMPORT_BATCH_SIZE)));
+
+                    // Drop the IDs from the file so the DAO allocates fresh ones, then
+                    // persist the batch before touching the in-memory list
+                    batch.forEach(task -> task.setId(null));
+                    if (!persistImported(batch, asyncDao)) {
+                        return false;
+                    }
+                    addTasks(batch);
+                    importedCount[0] += batch.size();
                 }
-            }
-            return "Tasks imported from file: " + file.getName();
+                return true;
+            });
         } catch (IOException e) {
-            return "An error occurred while importing tasks from file: " + e.getMessage();
+            return "An error occurred while importing tasks from file after " + importedCount[0] + " tasks: " + e.getMessage();
+        }
+        if (!saved) {
+            return "An error occurred while saving imported tasks to the database after " + importedCount[0] + " tasks";
         }
+        return "Tasks imported from file: " + file.getName();
     }
 
     /**
-     * Parses a task from a string.
+     * Imports tasks from a UTF-8 CSV file in the format written by
+     * {@link #exportTasksToCSV(String)}. The file is streamed and the tasks are
+     * persisted in batches of {@value #IMPORT_BATCH_SIZE}, each in one transaction,
+     * so memory use stays the same however many rows the file has. If a batch fails,
+     * the batches before it stay imported. The imported tasks receive new database IDs;
+     * IDs in the file are ignored. Like {@link #importTasksFromFile(File, AsyncTaskDAO)},
+     * it waits for the DAO's writer thread; call it off the EDT.
      *
-     * @param line the string representation of a task
-     * @return the parsed task, or null if the format is invalid
+     * @param file the uploaded CSV file to import tasks from
+     * @param asyncDao the DAO used to persist the imported tasks
+     * @return String containing a success message if import was successful, or the error
+     * message if not.
      */
-    private Task<Integer> parseTask(String line) {
-        String[] parts = line.split("\\|");
-        if (parts.length != 5) {
-            return null; // Invalid task format
+    public String importTasksFromCSV(File file, AsyncTaskDAO asyncDao) {
+        int importedCount = 0;
+        List<Task<Integer>> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        try (CsvTaskReader reader = new CsvTaskReader(Files.newBufferedReader(file.toPath()), categoryDictionary)) {
+            Task<Integer> task;
+            do {
+                task = reader.next();
+                if (task != null) {
+                    task.setId(null); // The DAO allocates a fresh one
+                    batch.add(task);
+                }
+                if (batch.size() == IMPORT_BATCH_SIZE || (task == null && !batch.isEmpty())) {
+                    if (!persistImported(batch, asyncDao)) {
+                        return "An error occurred while saving imported tasks to the database after "
+                                + importedCount + " tasks";
+                    }
+                    addTasks(batch);
+                    importedCount += batch.size();
+                    batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+                }
+            } while (task != null);
+        } catch (IOException e) {
+            return "An error occurred while importing tasks from CSV file after " + importedCount + " tasks: " + e.getMessage();
         }
+        return importedCount + " tasks imported from CSV file: " + file.getName();
+    }
+
+    /**
+     * Persists a batch of imported tasks in one transaction and waits for it.
+     *
+     * @param batch the tasks, without IDs; each receives its new ID
+     * @param asyncDao the DAO writing the batch
+     * @return true if the batch was saved
+     */
+    private static boolean persistImported(List<Task<Integer>> batch, AsyncTaskDAO asyncDao) {
         try {
-            int id = Integer.parseInt(parts[0].trim());
-            String name = parts[1].trim();
-            String description = parts[2].trim();
-            boolean completionStatus = Boolean.parseBoolean(parts[3].trim());
-            String category = parts[4].trim();
-            return new Task<>(id, name, description, completionStatus, category);
-        } catch (NumberFormatException e) {
-            return null; // Invalid number format
+            return !asyncDao.createTasks(batch).join().isEmpty();
+        } catch (CompletionException e) {
+            System.out.println(e.getMessage());
+            return false;
         }
     }
 
     /**
-     * Exports tasks to a CSV file and returns the file properties.
+     * Exports tasks to a CSV file and returns the file properties. Every task must hold
+     * its full description; see {@link #exportTasksToCSV(String, TaskQuery, TaskDAO)}.
      *
      * @param fileName the name of the CSV file to export tasks to
      * @return String containing file properties if file creation was successful, or the
      * error message if not.
      */
     public String exportTasksToCSV(String fileName) {
+        return exportTasksToCSV(fileName, new TaskQuery(), null);
+    }
+
+    /**
+     * Exports tasks to a CSV file and returns the file properties.
+     *
+     * @param fileName the name of the CSV file to export tasks to
+     * @param taskDao reads the full descriptions the tasks do not hold
+     * @return String containing file properties if file creation was successful, or the
+     * error message if not.
+     */
+    public String exportTasksToCSV(String fileName, TaskDAO taskDao) {
+        return exportTasksToCSV(fileName, new TaskQuery(), taskDao);
+    }
+
+    /**
+     * Exports the tasks matching a query to a CSV file and returns the file properties.
+     * Descriptions that are only held as a preview are read from the database in one
+     * pass; if that fails, so does the export.
+     *
+     * @param fileName the name of the CSV file to export tasks to
+     * @param query selects and orders the tasks to export
+     * @param taskDao reads the full descriptions the tasks do not hold; may be null if
+     * every task holds its own
+     * @return String containing file properties if file creation was successful, or the
+     * error message if not.
+     */
+    public String exportTasksToCSV(String fileName, TaskQuery query, TaskDAO taskDao) {
         Path filePath = Paths.get(fileName);
-        List<String> lines = new ArrayList<>();
-        lines.add("ID,Name,Description,CompletionStatus,Category"); // CSV header
-        for (Task<Integer> task : tasks) {
-            lines.add(task.getId() + "," 
-                    + escapeCSV(task.getName()) + "," 
-                    + escapeCSV(task.getDescription()) + "," 
-                    + task.isComplete() + "," 
-                    + escapeCSV(task.getCategory()));
-        }
+        String lineSeparator = System.lineSeparator();
         try {
-            Files.write(filePath, lines);
+            // Each row is escaped straight into the writer's buffer, so memory use does
+            // not depend on the number of tasks
+            try (TextFileWriter writer = new TextFileWriter(filePath)) {
+                writer.append("ID,Name,Description,CompletionStatus,Category").append(lineSeparator); // CSV header
+                writeWithDescriptions(query(query), taskDao, (task, description) -> {
+                    writer.append(task.getId()).append(',');
+                    escapeCSV(task.getName(), writer);
+                    writer.append(',');
+                    escapeCSV(description, writer);
+                    writer.append(',').append(task.isComplete()).append(',');
+                    escapeCSV(task.getCategory(), writer);
+                    writer.append(lineSeparator);
+                });
+            }
             System.out.println("Tasks exported to CSV file: " + fileName);
 
             // Display file properties
@@ -170,17 +909,99 @@ public class TaskManager {
     }
 
     /**
-     * Escapes a string for CSV format.
+     * Writes one exported task.
+     */
+    private interface ExportWriter {
+
+        /**
+         * @param task the task
+         * @param description its full description
+         * @throws IOException if writing fails
+         */
+        void write(Task<Integer> task, String description) throws IOException;
+    }
+
+    /**
+     * Hands tasks to an export writer in order, each with its full description. The tasks
+     * are written {@value #EXPORT_PAGE_SIZE} at a time. The descriptions a page's tasks do
+     * not hold are read in one query by ID, so only one page of them is held at a time,
+     * whatever the order of the tasks.
+     *
+     * @param tasks the tasks to write
+     * @param taskDao reads the missing descriptions; may be null if there are none
+     * @param writer writes each task
+     * @throws IOException if writing fails, or a description cannot be read
+     */
+    private static void writeWithDescriptions(List<Task<Integer>> tasks, TaskDAO taskDao, ExportWriter writer) throws IOException {
+        int[] missing = new int[EXPORT_PAGE_SIZE];
+        for (int from = 0; from < tasks.size(); from += EXPORT_PAGE_SIZE) {
+            List<Task<Integer>> page = tasks.subList(from, Math.min(tasks.size(), from + EXPORT_PAGE_SIZE));
+            int count = 0;
+            for (Task<Integer> task : page) {
+                if (!task.isDescriptionLoaded() && !TaskStore.hasStoredDescription(task)) {
+                    missing[count++] = task.getId();
+                }
+            }
+
+            Map<Integer, String> descriptions = Collections.emptyMap();
+            if (count > 0) {
+                if (taskDao == null) {
+                    throw new IOException("the full descriptions are not loaded");
+                }
+                descriptions = taskDao.getDescriptions(Arrays.copyOf(missing, count));
+                if (descriptions == null) {
+                    throw new IOException("could not read the descriptions from the database");
+                }
+            }
+
+            for (Task<Integer> task : page) {
+                if (task.isDescriptionLoaded() || TaskStore.hasStoredDescription(task)) {
+                    writer.write(task, task.getDescription());
+                } else if (descriptions.containsKey(task.getId())) {
+                    writer.write(task, descriptions.get(task.getId()));
+                } else {
+                    throw new IOException("task " + task.getId() + " is no longer in the database");
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a string as a CSV field in one pass. A value containing a comma, quote or
+     * line break is quoted, with its quotes doubled; a null value is an empty field.
      *
      * @param value the string to be escaped
-     * @return the escaped string
+     * @param writer the writer to append the field to
+     * @throws IOException if writing fails
      */
-    private String escapeCSV(String value) {
-        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
-            value = value.replace("\"", "\"\"");
-            return "\"" + value + "\"";
+    private static void escapeCSV(String value, TextFileWriter writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        int special = 0;
+        while (special < length && !needsQuotes(value.charAt(special))) {
+            special++;
         }
-        return value;
+        if (special == length) {
+            writer.append(value);
+            return;
+        }
+
+        // Copy the plain prefix as is, then double every quote from there on
+        writer.append('"').append(value, 0, special);
+        int from = special;
+        for (int i = special; i < length; i++) {
+            if (value.charAt(i) == '"') {
+                writer.append(value, from, i + 1).append('"');
+                from = i + 1;
+            }
+        }
+        writer.append(value, from, length).append('"');
+    }
+
+    private static boolean needsQuotes(char c) {
+        return c == ',' || c == '"' || c == '\n' || c == '\r';
     }
 
 }
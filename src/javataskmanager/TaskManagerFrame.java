@@ -1,11 +1,26 @@
 package javataskmanager;
 
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 
 /**
@@ -14,12 +29,40 @@ import javax.swing.table.DefaultTableModel;
  */
 public class TaskManagerFrame extends javax.swing.JFrame {
 
+    // Number of tasks read from the database per page while loading
+    private static final int LOAD_PAGE_SIZE = 500;
+
+    // Maximum number of ranked matches returned by a "Full text" search
+    private static final int FULL_TEXT_LIMIT = 200;
+
+    // How often to pull changes made by other writers from the db
+    private static final int SYNC_INTERVAL_MILLIS = 2000;
+
     TaskManager taskManager;
     TaskDAO taskDao;
+    AsyncTaskDAO asyncDao;
+    TaskWriteBehind writeBehind;
+    TaskJournal journal; // null unless the tasks are journaled locally
     TaskCategorizer taskCategorizer;
     DefaultTableModel tableModel;
     HandleGUI gui;
 
+    // Model row of each task shown in tableModel (EDT only)
+    final TableRowIndex tableRows = new TableRowIndex();
+
+    // Number of unfinished database writes per task ID (EDT only)
+    final Map<Integer, Integer> pendingWrites = new HashMap<>();
+
+    // Keeps the task table in step with the taskManager for the current filters
+    TaskSubscription tableSubscription;
+
+    // Rank of each "Full text" match by task ID, or null without a "Full text" search
+    Map<Integer, Integer> fullTextRanks;
+
+    // Row version of the last db change applied to taskManager (EDT only)
+    long syncVersion;
+    boolean syncInFlight;
+
     /**
      * Creates new form TaskManagerFrame
      *
@@ -27,10 +70,24 @@ public class TaskManagerFrame extends javax.swing.JFrame {
      * @param taskDao
      */
     public TaskManagerFrame(TaskManager taskManager, TaskDAO taskDao) {
+        this(taskManager, taskDao, null);
+    }
+
+    /**
+     * Creates new form TaskManagerFrame that restores the tasks from a journal on load
+     *
+     * @param taskManager
+     * @param taskDao
+     * @param journal the journal to restore from and keep up to date, or null
+     */
+    public TaskManagerFrame(TaskManager taskManager, TaskDAO taskDao, TaskJournal journal) {
 
         // Assign and instanciate
         this.taskManager = taskManager;
+        this.journal = journal;
         this.taskDao = taskDao;
+        this.asyncDao = new AsyncTaskDAO(taskDao);
+        this.writeBehind = new TaskWriteBehind(taskDao);
         this.taskCategorizer = new TaskCategorizer();
         this.gui = new HandleGUI();
 
@@ -50,28 +107,249 @@ public class TaskManagerFrame extends javax.swing.JFrame {
 
         // Create components and populate task table + category drop-down
         initComponents();
+        ImportFileChooser.addChoosableFileFilter(new CsvFileFilter());
+        TaskTable.setDefaultRenderer(Object.class, new PendingRowRenderer());
         gui.refreshCategoryCombo();
         gui.refreshTaskTable();
+
+        // Flush queued database writes before the application exits
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                writeBehind.close();
+                asyncDao.close();
+                if (journal != null) {
+                    journal.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads all tasks from the database on a background thread, one page at a time.
+     * Each page is added to the taskManager and shown in the task table as soon as it
+     * arrives, so the first rows appear before the whole table has been read. With a
+     * journal, the tasks are restored from it instead and only the changes made since
+     * it was last written are read from the database. Once loading finishes, changes
+     * made by other writers are pulled in periodically.
+     */
+    public void loadTasks() {
+        new SwingWorker<String, List<Task<Integer>>>() {
+
+            // Read before the first page so no change made during loading is missed
+            long startVersion;
+
+            @Override
+            @SuppressWarnings("unchecked")
+            protected String doInBackground() {
+                if (journal != null) {
+                    try {
+                        startVersion = journal.open(taskManager);
+                        if (startVersion >= 0) {
+                            return "Success"; // The first sync pulls in the rest
+                        }
+                    } catch (IOException e) {
+                        System.out.println("An error occurred while opening the task journal: " + e.getMessage());
+                    }
+                }
+                startVersion = taskDao.getCurrentVersion();
+                return taskDao.forEachTaskProjectionPage(LOAD_PAGE_SIZE, page -> publish(page));
+            }
+
+            @Override
+            protected void process(List<List<Task<Integer>>> pages) {
+                pages.forEach(gui::appendTasks);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    String response = get();
+                    if (!response.equals("Success")) {
+                        System.out.println(response);
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    System.out.println(e.getMessage());
+                }
+
+                // Categories are only known once every page has been loaded
+                gui.refreshCategoryCombo();
+
+                // Start pulling changes made since loading began
+                syncVersion = startVersion;
+                new Timer(SYNC_INTERVAL_MILLIS, e -> gui.syncWithDatabase()).start();
+            }
+        }.execute();
+    }
+
+    /**
+     * Turns a database call that failed with an exception into the "Error: ..." response
+     * the DAO returns for failures it handles itself, so callbacks undo the change the
+     * same way in both cases.
+     *
+     * @param error the exception the call's future completed with
+     * @return the error response
+     */
+    static String errorResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return "Error: " + cause;
+    }
+
+    /**
+     * Runs an import or export off the EDT, then shows its result.
+     *
+     * @param job the import or export; returns the message to show
+     */
+    private void runFileJob(Supplier<String> job) {
+        runFileJob(job, () -> {
+        });
     }
 
     /**
-     * Utility inner class for categorizing tasks.
+     * Runs an import or export off the EDT, then shows its result. The import and export
+     * menu items are disabled until it finishes, so only one runs at a time.
+     *
+     * @param job the import or export; returns the message to show
+     * @param after run on the EDT once the result is shown
+     */
+    private void runFileJob(Supplier<String> job, Runnable after) {
+        setFileMenuEnabled(false);
+        new SwingWorker<String, Void>() {
+
+            @Override
+            protected String doInBackground() {
+                return job.get();
+            }
+
+            @Override
+            protected void done() {
+                String result;
+                try {
+                    result = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    result = errorResponse(e.getCause() != null ? e.getCause() : e);
+                }
+                setFileMenuEnabled(true);
+                ResultDialog.setLocationRelativeTo(TaskManagerFrame.this);
+                ResultDialog.setVisible(true);
+                ExportTextPanel.setText(result);
+                after.run();
+            }
+        }.execute();
+    }
+
+    private void setFileMenuEnabled(boolean enabled) {
+        jMenuItem1.setEnabled(enabled);
+        jMenuItem2.setEnabled(enabled);
+        jMenuItem3.setEnabled(enabled);
+    }
+
+    /**
+     * Table cell renderer that greys out rows whose database write has not finished.
+     */
+    class PendingRowRenderer extends DefaultTableCellRenderer {
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+            Component cell = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            Object id = table.getModel().getValueAt(table.convertRowIndexToModel(row), 0);
+            if (pendingWrites.containsKey(id)) {
+                cell.setForeground(Color.GRAY);
+                cell.setFont(cell.getFont().deriveFont(Font.ITALIC));
+            } else {
+                cell.setForeground(isSelected ? table.getSelectionForeground() : table.getForeground());
+            }
+            return cell;
+        }
+    }
+
+    /**
+     * Utility inner class for categorizing tasks. Reads the category index maintained
+     * by the taskManager, so its cost depends on the number of categories rather than
+     * the number of tasks. Categories are compared by their code in the taskManager's
+     * category dictionary.
      */
     class TaskCategorizer {
 
         /**
-         * Categorizes tasks by their category.
+         * Gets the code of a category.
+         *
+         * @param category the category
+         * @return its code, or -1 if no task has had that category
+         */
+        int codeOf(String category) {
+            return taskManager.getCategoryDictionary().find(category);
+        }
+
+        /**
+         * Gets the categories of all tasks.
          *
-         * @param tasks the list of tasks to be categorized
-         * @return a map where the key is the category and the value is a list of tasks in
-         * that category
+         * @return the categories, in the order they first appeared
          */
-        Map<String, List<Task<Integer>>> categorizeTasks(List<Task<Integer>> tasks) {
-            Map<String, List<Task<Integer>>> categorizedTasks = new HashMap<>();
-            for (Task<Integer> task : tasks) {
-                categorizedTasks.computeIfAbsent(task.getCategory(), k -> new ArrayList<>()).add(task);
+        Set<String> getCategories() {
+            return taskManager.getCategories();
+        }
+
+        /**
+         * Counts the tasks in each category.
+         *
+         * @return a map where the key is the category and the value is the number of
+         * tasks in that category
+         */
+        Map<String, Integer> countTasksByCategory() {
+            return taskManager.getCategoryCounts();
+        }
+
+        /**
+         * Gets the tasks in a category.
+         *
+         * @param category the category
+         * @return the tasks in that category, in insertion order
+         */
+        List<Task<Integer>> getTasksInCategory(String category) {
+            return taskManager.getTasksInCategory(codeOf(category));
+        }
+    }
+
+    /**
+     * Applies the changes to the tasks matching the current filters to the task table,
+     * one row at a time. Events arriving off the EDT are passed on to it.
+     */
+    class TableUpdater implements TaskListener {
+
+        @Override
+        public void taskInserted(Task<Integer> task) {
+            onEdt(() -> {
+                // New tasks were not part of the "Full text" ranking, so stay hidden
+                if (fullTextRanks == null || fullTextRanks.containsKey(task.getId())) {
+                    gui.addRows(List.of(task));
+                }
+            });
+        }
+
+        @Override
+        public void taskUpdated(Task<Integer> task) {
+            onEdt(() -> {
+                int row = gui.rowOf(task.getId());
+                if (row != -1) {
+                    gui.updateRow(row, task);
+                }
+            });
+        }
+
+        @Override
+        public void taskRemoved(Task<Integer> task) {
+            onEdt(() -> {
+                gui.removeRow(task.getId());
+            });
+        }
+
+        void onEdt(Runnable update) {
+            if (SwingUtilities.isEventDispatchThread()) {
+                update.run();
+            } else {
+                SwingUtilities.invokeLater(update);
             }
-            return categorizedTasks;
         }
     }
 
@@ -99,10 +377,11 @@ public class TaskManagerFrame extends javax.swing.JFrame {
                 DeleteButton.setEnabled(true);
             }
 
-            // Get row column cell values
+            // Get row column cell values; the table only shows a description preview, so
+            // the full description comes from the task itself
             String id = TaskTable.getModel().getValueAt(row, idCol).toString();
             String name = TaskTable.getModel().getValueAt(row, nameCol).toString();
-            String description = TaskTable.getModel().getValueAt(row, descCol).toString();
+            Task<Integer> task = taskManager.getTask(Integer.valueOf(id));
             boolean completionStatus = (boolean) TaskTable.getModel().getValueAt(row, completionCol);
             String category = TaskTable.getModel().getValueAt(row, categoryCol).toString();
 
@@ -111,7 +390,26 @@ public class TaskManagerFrame extends javax.swing.JFrame {
             NameField.setText(name);
             CategoryField.setText(category);
             CompletedCheck.setSelected(completionStatus);
-            DescriptionTextArea.setText(description);
+            if (task == null || task.isDescriptionLoaded() || TaskStore.hasStoredDescription(task) || task.getDescriptionPreview() == null) {
+                DescriptionTextArea.setText(task != null ? task.getDescription() : TaskTable.getModel().getValueAt(row, descCol).toString());
+                return;
+            }
+
+            // The full description is in the db: show the preview and fetch it off the
+            // EDT. Editing waits for it, so the preview is never saved over it.
+            DescriptionTextArea.setText(task.getDescriptionPreview());
+            EditButton.setEnabled(false);
+            asyncDao.getDescription(task.getId()).exceptionally(error -> {
+                System.out.println(errorResponse(error));
+                return null;
+            }).thenAccept(description -> SwingUtilities.invokeLater(() -> {
+                if (description == null) {
+                    System.out.println("Could not load the description of task " + id);
+                } else if (id.equals(IDField.getText()) && EditButton.getText() == "Edit") {
+                    DescriptionTextArea.setText(description);
+                    EditButton.setEnabled(true);
+                }
+            }));
         }
 
         /**
@@ -147,30 +445,40 @@ public class TaskManagerFrame extends javax.swing.JFrame {
                 String category = CategoryField.getText();
                 Task<Integer> newTask = new Task<>(id, name, description, completionStatus, category);
 
-                // Pass new task to taskDao to apply update to the db and get the response
-                String response = taskDao.updateTask(newTask);
+                // Keep the current version so the edit can be undone if the write fails
+                Task<Integer> oldTask = taskManager.getTask(id);
 
-                if (response == "Success") {
+                // Mark the row as pending and apply the change locally straight away
+                markPending(id);
+                taskManager.updateTask(newTask);
 
-                    // Apply the change to the local taskManager as well
-                    taskManager.updateTask(newTask);
+                // Reset "Task Display" to initial state
+                NameField.setEnabled(false);
+                NameField.setEditable(false);
+                CategoryField.setEnabled(false);
+                CategoryField.setEditable(false);
+                CompletedCheck.setEnabled(false);
+                DescriptionTextArea.setEnabled(false);
+                DescriptionTextArea.setEditable(false);
+                EditButton.setText("Edit");
 
-                    // Reset "Task Display" to initial state
-                    NameField.setEnabled(false);
-                    NameField.setEditable(false);
-                    CategoryField.setEnabled(false);
-                    CategoryField.setEditable(false);
-                    CompletedCheck.setEnabled(false);
-                    DescriptionTextArea.setEnabled(false);
-                    DescriptionTextArea.setEditable(false);
-                    EditButton.setText("Edit");
+                // The task table follows through tableSubscription
+                refreshCategoryCombo();
 
-                    // Refresh
-                    refreshCategoryCombo();
-                    refreshTaskTable();
-                } else {
-                    System.out.println(response);
-                }
+                // Queue the update; writeBehind batches it into the db off the EDT
+                writeBehind.updateTask(newTask).exceptionally(TaskManagerFrame::errorResponse).thenAccept(response -> SwingUtilities.invokeLater(() -> {
+                    if (response.equals("Success")) {
+                        clearPending(id);
+                        TaskTable.repaint();
+                    } else {
+                        System.out.println(response);
+                        if (oldTask != null) {
+                            taskManager.updateTask(oldTask);
+                        }
+                        clearPending(id);
+                        refreshCategoryCombo();
+                    }
+                }));
             }
         }
 
@@ -179,17 +487,25 @@ public class TaskManagerFrame extends javax.swing.JFrame {
          */
         void handleTaskDelete() {
 
-            // Get ID and pass it to taskDao to remove the task from the db
+            // Get ID, mark the row as pending and queue the delete with writeBehind
             int id = Integer.parseInt(IDField.getText());
-            String response = taskDao.deleteTask(id);
+            markPending(id);
+            TaskTable.repaint();
 
-            if (response == "Success") {
+            writeBehind.deleteTask(id).exceptionally(TaskManagerFrame::errorResponse).thenAccept(response -> SwingUtilities.invokeLater(() -> {
+                if (response.equals("Success")) {
 
-                // Remove from local taskManager & refresh
-                taskManager.removeTask(id);
-                refreshCategoryCombo();
-                refreshTaskTable();
-            }
+                    // Remove from local taskManager; its row goes with it
+                    taskManager.removeTask(id);
+                    clearPending(id);
+                    clearTaskDetails();
+                    refreshCategoryCombo();
+                } else {
+                    System.out.println(response);
+                    clearPending(id);
+                    TaskTable.repaint();
+                }
+            }));
         }
 
         /**
@@ -202,23 +518,43 @@ public class TaskManagerFrame extends javax.swing.JFrame {
             String category = NewTaskCategoryField.getText();
             String description = NewTaskDescriptionTextArea.getText();
 
-            // Create task and pass it to taskDao to insert into the db
+            // asyncDao gives the task an ID and inserts it off the EDT; the task is added
+            // to the taskManager once it is in the db, so later edits cannot overtake it
             Task<Integer> newTask = new Task<>(null, name, description, false, category);
-            String response = taskDao.createTask(newTask);
-
-            if (response.contains("Success")) {
+            NewTaskDialog.dispose();
+            asyncDao.createTask(newTask).exceptionally(TaskManagerFrame::errorResponse).thenAccept(response -> SwingUtilities.invokeLater(() -> {
+                if (response.contains("Success")) {
+                    taskManager.addTask(newTask);
+                    refreshCategoryCombo();
+                } else {
+                    System.out.println(response);
+                }
+            }));
+        }
 
-                // Get db ID value from response string & add task to local taskManager
-                int newId = Integer.parseInt(response.split(" \\| ")[1]);
-                newTask.setId(newId);
-                taskManager.addTask(newTask);
+        /**
+         * Record that a database write for a task has been started; call it before
+         * changing the task in the taskManager, so the journal holds the change back
+         *
+         * @param id
+         */
+        void markPending(int id) {
+            pendingWrites.merge(id, 1, Integer::sum);
+            if (journal != null) {
+                journal.beginWrite(id);
+            }
+        }
 
-                // Close NewTaskDialog and refresh
-                NewTaskDialog.dispose();
-                refreshCategoryCombo();
-                refreshTaskTable();
-            } else {
-                System.out.println(response);
+        /**
+         * Record that a database write for a task has finished; call it once the
+         * taskManager holds the outcome, so the journal records the confirmed task
+         *
+         * @param id
+         */
+        void clearPending(int id) {
+            pendingWrites.computeIfPresent(id, (key, count) -> count == 1 ? null : count - 1);
+            if (journal != null) {
+                journal.endWrite(id);
             }
         }
 
@@ -227,59 +563,157 @@ public class TaskManagerFrame extends javax.swing.JFrame {
          * taskCategorizer map
          */
         void refreshCategoryCombo() {
-            // Get all tasks in taskManager
-            List<Task<Integer>> allTasks = taskManager.getTasks();
-
-            // Create hashmap based on task categories
-            Map<String, List<Task<Integer>>> categorizedTasks = taskCategorizer.categorizeTasks(allTasks);
+            // Get the categories from the taskManager's category index
+            Set<String> categories = taskCategorizer.getCategories();
 
-            // Clear CategoryCombo & add item for each key (aka category) in categorizedTasks
+            // Clear CategoryCombo & add item for each category
+            Object selected = CategoryCombo.getSelectedItem();
             CategoryCombo.removeAllItems();
             CategoryCombo.addItem("-- Show All --");
-            categorizedTasks.forEach((category, tasks) -> {
+            categories.forEach(category -> {
                 CategoryCombo.addItem(category);
             });
+
+            // Keep the selected category if it still exists
+            if (selected != null && categories.contains(selected)) {
+                CategoryCombo.setSelectedItem(selected);
+            }
+        }
+
+        /**
+         * Fetch the changes other writers made to the db since the last sync and apply
+         * them to the local taskManager. Deferred while a task is being edited.
+         */
+        void syncWithDatabase() {
+            if (syncInFlight || EditButton.getText() == "Save") {
+                return;
+            }
+            syncInFlight = true;
+
+            asyncDao.getTasksModifiedSince(syncVersion).exceptionally(error -> {
+                System.out.println(errorResponse(error));
+                return null;
+            }).thenAccept(delta -> SwingUtilities.invokeLater(() -> {
+                syncInFlight = false;
+                if (delta == null || EditButton.getText() == "Save") {
+                    return; // Retry on the next tick
+                }
+                int visibleChanges = taskManager.applyDelta(delta);
+                syncVersion = delta.getVersion();
+                if (visibleChanges > 0) {
+                    refreshCategoryCombo();
+                }
+            }));
         }
 
         /**
-         * Filter a task list by the parameters provided by user input
+         * Build a query from the search, category and completion parameters. A "Full
+         * text" search is not part of it; see rankByFullText.
          *
-         * @param tasks
-         * @return
+         * @return the query, or null if the search cannot match any task
          */
-        List<Task<Integer>> filterBySearch(List<Task<Integer>> tasks) {
+        TaskQuery buildQuery() {
+            TaskQuery query = new TaskQuery();
 
             // Get Input from SearchField & column to filter by from SearchCombo
-            String query = SearchField.getText().trim().toLowerCase();
+            String search = SearchField.getText().trim();
             String column = (String) SearchCombo.getSelectedItem();
-
-            // Return filtered tasks
-            if (query.isBlank()) {
-                return tasks;
-            } else {
+            if (!search.isBlank()) {
                 if (column == "Name") {
-                    return tasks.stream().filter(task -> task.getName().toLowerCase().contains(query)).collect(Collectors.toList());
-                } else {
+                    query.setNameContains(search);
+                } else if (column == "ID") {
                     try {
-                        int id = Integer.parseInt(query);
-                        return tasks.stream().filter(task -> task.getId().equals(id)).collect(Collectors.toList());
+                        query.setId(Integer.parseInt(search));
                     } catch (NumberFormatException e) {
-                        return new ArrayList<>(); // Return empty list if ID is not a valid number
+                        return null; // No task matches an ID that is not a valid number
                     }
                 }
             }
+
+            // Filter by selected filter category and by completion status based on
+            // filter tick box
+            String selectedCategory = (String) CategoryCombo.getSelectedItem();
+            if (selectedCategory != null && selectedCategory != "-- Show All --") {
+                query.setCategory(selectedCategory);
+            }
+            if (!ShowCompCheck.isSelected()) {
+                query.setCompletionStatus(false);
+            }
+            return query;
+        }
+
+        /**
+         * Rank the tasks matching a "Full text" search in SQLite's FTS index off the EDT,
+         * with the category and completion filters applied before the result limit. The
+         * rows stay hidden until the ranking arrives, then the ranked tasks that still
+         * match the query are shown in rank order and their ranks kept in fullTextRanks.
+         * A ranking that arrives after the filters changed again is dropped.
+         *
+         * @param search
+         * @param query
+         */
+        void rankByFullText(String search, TaskQuery query) {
+            TaskSubscription subscription = tableSubscription;
+            fullTextRanks = Collections.emptyMap();
+
+            TaskCriteria criteria = new TaskCriteria();
+            criteria.setCategory(query.getCategory());
+            criteria.setCompletionStatus(query.getCompletionStatus());
+            asyncDao.searchTasks(search, criteria, FULL_TEXT_LIMIT).exceptionally(error -> {
+                System.out.println(errorResponse(error));
+                return List.of();
+            }).thenAccept(matches -> SwingUtilities.invokeLater(() -> {
+                if (subscription != tableSubscription) {
+                    return;
+                }
+                Map<Integer, Integer> rankById = new HashMap<>();
+                List<Task<Integer>> ranked = new ArrayList<>();
+                for (Task<Integer> match : matches) {
+                    Task<Integer> task = taskManager.getTask(match.getId());
+                    if (task != null && query.matches(task)) {
+                        rankById.put(task.getId(), ranked.size());
+                        ranked.add(task);
+                    }
+                }
+                fullTextRanks = rankById;
+                addRows(ranked);
+            }));
         }
 
         /**
          * Empties and re-populates the taskTable based on the applied filter/search
-         * parameters
+         * parameters, then subscribes to the taskManager so later changes update the
+         * affected rows only
          */
         void refreshTaskTable() {
 
-            // Clear table of all rows
+            // Clear table of all rows and stop following the previous filters
             tableModel.setRowCount(0);
+            tableRows.clear();
+            clearTaskDetails();
+            fullTextRanks = null;
+            if (tableSubscription != null) {
+                tableSubscription.close();
+                tableSubscription = null;
+            }
 
-            // Set elements to initial state
+            // Let the taskManager's query planner pick the index to start from
+            TaskQuery query = buildQuery();
+            if (query != null) {
+                tableSubscription = taskManager.subscribe(query, new TableUpdater());
+                String search = SearchField.getText().trim().toLowerCase();
+                if (!search.isBlank() && SearchCombo.getSelectedItem() == "Full text") {
+                    rankByFullText(search, query);
+                } else {
+                    addRows(tableSubscription.getInitialTasks());
+                }
+            }
+        }
+
+        /**
+         * Set the "Task Details" elements to their initial state
+         */
+        void clearTaskDetails() {
             EditButton.setEnabled(false);
             DeleteButton.setEnabled(false);
             IDField.setText(null);
@@ -287,67 +721,102 @@ public class TaskManagerFrame extends javax.swing.JFrame {
             CategoryField.setText(null);
             CompletedCheck.setSelected(false);
             DescriptionTextArea.setText(null);
+        }
 
-            // Get all tasks in taskManager filtered by the search parameters
-            List<Task<Integer>> searchResults = filterBySearch(taskManager.getTasks());
-
-            // Create hashmap with all tasks grouped by category
-            Map<String, List<Task<Integer>>> categorizedTasks = taskCategorizer.categorizeTasks(searchResults);
-
-            // Filter tasks by selected filter category
-            String selectedCategory = (String) CategoryCombo.getSelectedItem();
-            List<Task<Integer>> tasksToFilter;
-
-            if (selectedCategory == "-- Show All --") {
-                tasksToFilter = searchResults;
-            } else {
-                tasksToFilter = categorizedTasks.get(selectedCategory);
-            }
+        /**
+         * Add a page of freshly loaded tasks to the taskManager; tableSubscription
+         * appends the ones that pass the current filter/search parameters to the
+         * taskTable
+         *
+         * @param page
+         */
+        void appendTasks(List<Task<Integer>> page) {
+            taskManager.addTasks(page);
+        }
 
-            // Filter tasks by completion status based on filter tick box
-            boolean showCompleted = ShowCompCheck.isSelected();
-            List<Task<Integer>> filteredTasks;
+        /**
+         * Find the taskTable row showing a task
+         *
+         * @param id
+         * @return the row index, or -1 if the task is not shown
+         */
+        int rowOf(int id) {
+            return tableRows.rowOf(id);
+        }
 
-            if (!showCompleted) {
-                filteredTasks = tasksToFilter.stream().filter(task -> !task.isComplete()).collect(Collectors.toList());
-            } else {
-                filteredTasks = tasksToFilter;
-            }
+        /**
+         * Create and add a table row for each task; a task that is already shown has
+         * its row updated instead
+         *
+         * @param tasks
+         */
+        void addRows(List<Task<Integer>> tasks) {
+            tasks.forEach(task -> {
+                int id = task.getId();
+                int row = rowOf(id);
+                if (row != -1) {
+                    updateRow(row, task);
+                    return;
+                }
+                String name = task.getName();
+                String desc = task.getDescriptionPreview();
+                boolean completeStatus = task.isComplete();
+                String category = task.getCategory();
+
+                tableRows.add(id);
+                tableModel.addRow(new Object[]{id,
+                    name,
+                    desc,
+                    completeStatus,
+                    category});
+            });
+        }
 
-            // If any tasks remain after filtering, create and add rows for each task
-            if (filteredTasks != null) {
-                filteredTasks.forEach(task -> {
-                    int id = task.getId();
-                    String name = task.getName();
-                    String desc = task.getDescription();
-                    boolean completeStatus = task.isComplete();
-                    String category = task.getCategory();
-
-                    tableModel.addRow(new Object[]{id,
-                        name,
-                        desc,
-                        completeStatus,
-                        category});
-                });
+        /**
+         * Remove the row showing a task, if any
+         *
+         * @param id
+         */
+        void removeRow(int id) {
+            int row = tableRows.remove(id);
+            if (row != -1) {
+                tableModel.removeRow(row);
             }
+        }
 
+        /**
+         * Overwrite the row showing a task with its new values
+         *
+         * @param row
+         * @param task
+         */
+        void updateRow(int row, Task<Integer> task) {
+            tableModel.setValueAt(task.getName(), row, 1);
+            tableModel.setValueAt(task.getDescriptionPreview(), row, 2);
+            tableModel.setValueAt(task.isComplete(), row, 3);
+            tableModel.setValueAt(task.getCategory(), row, 4);
         }
 
         // Handle Export Button Event
         String exportToTXT() {
 
-            return taskManager.saveTasksToFile("tasks.txt");
+            return taskManager.saveTasksToFile("tasks.txt", taskDao);
         }
         
         // Handle Export Button Event
         String exportToCSV() {
 
-            return taskManager.exportTasksToCSV("tasks.csv");
+            return taskManager.exportTasksToCSV("tasks.csv", taskDao);
         }
         
         // handle Import Button Event
         String importFromTXT(File file) {
-            return taskManager.importTasksFromFile(file);
+            return taskManager.importTasksFromFile(file, asyncDao);
+        }
+
+        // handle Import Button Event for a .csv file
+        String importFromCSV(File file) {
+            return taskManager.importTasksFromCSV(file, asyncDao);
         }
 
     }
@@ -734,7 +1203,7 @@ public class TaskManagerFrame extends javax.swing.JFrame {
         jLabel2.setText("Search");
         jPanel4.add(jLabel2);
 
-        SearchCombo.setModel(new javax.swing.DefaultComboBoxModel<>(new String[] { "Name", "ID" }));
+        SearchCombo.setModel(new javax.swing.DefaultComboBoxModel<>(new String[] { "Name", "ID", "Full text" }));
         SearchCombo.setPreferredSize(new java.awt.Dimension(100, 26));
         jPanel4.add(SearchCombo);
 
@@ -908,11 +1377,7 @@ public class TaskManagerFrame extends javax.swing.JFrame {
     // Export to .txt Menu Button Event
     private void jMenuItem2ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuItem2ActionPerformed
 
-        String result = gui.exportToTXT();
-
-        ResultDialog.setLocationRelativeTo(this);
-        ResultDialog.setVisible(true);
-        ExportTextPanel.setText(result);
+        runFileJob(gui::exportToTXT);
     }//GEN-LAST:event_jMenuItem2ActionPerformed
 
     // ExportResultDialog Close Button Event
@@ -934,15 +1399,11 @@ public class TaskManagerFrame extends javax.swing.JFrame {
         // if selection approve button is clicked
         if (evt.getActionCommand().equals(javax.swing.JFileChooser.APPROVE_SELECTION)) {
 
-            // Get selected file and attempt to import
+            // Get selected file and import it in the background
             File file = ImportFileChooser.getSelectedFile();
-            String result = gui.importFromTXT(file);
-
+            boolean csv = file.getName().toLowerCase().endsWith(".csv");
             FileChooserDialog.dispose();
-            ResultDialog.setLocationRelativeTo(this);
-            ResultDialog.setVisible(true);
-            ExportTextPanel.setText(result);
-            gui.refreshTaskTable();
+            runFileJob(() -> csv ? gui.importFromCSV(file) : gui.importFromTXT(file), gui::refreshCategoryCombo);
 
             // if close button is clicked
         } else if (evt.getActionCommand().equals(javax.swing.JFileChooser.CANCEL_SELECTION)) {
@@ -953,11 +1414,7 @@ public class TaskManagerFrame extends javax.swing.JFrame {
     // Export to .csb Meny Button Event
     private void jMenuItem1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuItem1ActionPerformed
 
-        String result = gui.exportToCSV();
-
-        ResultDialog.setLocationRelativeTo(this);
-        ResultDialog.setVisible(true);
-        ExportTextPanel.setText(result);
+        runFileJob(gui::exportToCSV);
     }//GEN-LAST:event_jMenuItem1ActionPerformed
 
     /**
@@ -1067,3 +1524,18 @@ class MyCustomFilter extends javax.swing.filechooser.FileFilter {
         return "Text documents (*.txt)";
     }
 }
+
+// FileChooser FileFilter offered next to MyCustomFilter for importing CSV exports
+class CsvFileFilter extends javax.swing.filechooser.FileFilter {
+
+    @Override
+    public boolean accept(File file) {
+        // Allow only directories, or files with ".csv" extension
+        return file.isDirectory() || file.getName().toLowerCase().endsWith(".csv");
+    }
+
+    @Override
+    public String getDescription() {
+        return "CSV files (*.csv)";
+    }
+}
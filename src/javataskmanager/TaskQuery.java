@@ -0,0 +1,163 @@
+package javataskmanager;
+
+import java.util.Objects;
+
+/**
+ * A query over the tasks held by {@link TaskManager}, run with
+ * {@link TaskManager#query(TaskQuery)}. Every criterion left as null matches all tasks;
+ * the criteria that are set must all match.
+ *
+ * The query does not say how to find the tasks: TaskManager's planner starts from
+ * whichever of its indexes (ID, category, completion status or name trigrams) yields
+ * the fewest candidates and checks the other criteria on each candidate.
+ */
+public class TaskQuery {
+
+    /**
+     * The order of the results.
+     */
+    public enum Sort {
+        INSERTION_ORDER, ID, NAME
+    }
+
+    private Integer id;
+    private String nameContains;
+    private String foldedNameContains;
+    private String category;
+    private Boolean completionStatus;
+    private Sort sort = Sort.INSERTION_ORDER;
+    private boolean descending;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * @param id the ID to match, or null for any ID
+     */
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getNameContains() {
+        return nameContains;
+    }
+
+    /**
+     * @param nameContains a substring of the task name, matched ignoring case, or null
+     * for any name
+     */
+    public void setNameContains(String nameContains) {
+        this.nameContains = nameContains;
+        this.foldedNameContains = nameContains == null ? null : TrigramIndex.fold(nameContains);
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @param category the exact category to match, or null for any category
+     */
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public Boolean getCompletionStatus() {
+        return completionStatus;
+    }
+
+    /**
+     * @param completionStatus the completion status to match, or null for both
+     */
+    public void setCompletionStatus(Boolean completionStatus) {
+        this.completionStatus = completionStatus;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * @param sort the order of the results; names are compared ignoring case
+     */
+    public void setSort(Sort sort) {
+        this.sort = Objects.requireNonNull(sort);
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * @param descending true to reverse the sort order
+     */
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @param offset the number of sorted results to skip
+     */
+    public void setOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative: " + offset);
+        }
+        this.offset = offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param limit the maximum number of results to return after the offset
+     */
+    public void setLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Checks a single task against the criteria. Sorting, offset and limit don't apply.
+     *
+     * @param task the task
+     * @return true if the task matches every criterion that is set
+     */
+    public boolean matches(Task<Integer> task) {
+        return (id == null || id.equals(task.getId()))
+                && (category == null || category.equals(task.getCategory()))
+                && (completionStatus == null || completionStatus == task.isComplete())
+                && (nameContains == null || (task.getName() != null
+                && TrigramIndex.fold(task.getName()).contains(foldedNameContains)));
+    }
+
+    /**
+     * @return a copy of this query's criteria, with the default sort and no offset or
+     * limit
+     */
+    TaskQuery criteriaOnly() {
+        TaskQuery copy = new TaskQuery();
+        copy.setId(id);
+        copy.setNameContains(nameContains);
+        copy.setCategory(category);
+        copy.setCompletionStatus(completionStatus);
+        return copy;
+    }
+
+    /**
+     * @return the name substring case-folded the way the trigram index expects, or null
+     */
+    String getFoldedNameContains() {
+        return foldedNameContains;
+    }
+}
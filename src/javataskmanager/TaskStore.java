@@ -0,0 +1,474 @@
+package javataskmanager;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Supplier;
+
+/**
+ * Column-oriented storage for the tasks held by {@link TaskManager}.
+ *
+ * Every field lives in its own primitive column indexed by slot: IDs in an int[], the
+ * completion flags in a BitSet, categories as codes from a {@link CategoryDictionary},
+ * and names and descriptions as handles into two arenas. Names always live in a
+ * {@link StringArena}; descriptions do too, or optionally in an {@link OffHeapTextArena},
+ * in which case a task's description is only decoded when it is asked for. No Task
+ * object is kept; one is built by {@link #get(int)} each time a caller asks for a task.
+ *
+ * Per task, the store itself holds the text (one byte per Latin-1 char, two otherwise),
+ * an int or long per column and spare capacity in the growable columns and hash
+ * tables. A task loaded without its description also keeps the Supplier that loads it.
+ * TaskManager's indexes come on top, the largest being the name trigram index (see
+ * {@link TrigramIndex}).
+ *
+ * Measured as the retained heap of a whole TaskManager, trigram index included, after
+ * adding one million tasks with 20-char names, 60-char ASCII descriptions and five
+ * categories: about 470 bytes per task with on-heap descriptions, and about 380 bytes
+ * of heap plus 64 bytes of native memory with off-heap ones. Loaded as projections,
+ * each holding a 60-char preview and a description loader capturing its ID, the tasks
+ * take about 25 bytes more each, in either mode.
+ *
+ * Not thread-safe: TaskManager guards every call with its lock. Snapshots are
+ * immutable and can be read from any thread.
+ */
+final class TaskStore {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Compact once removed slots outnumber live tasks (and there are enough to matter)
+    private static final int MIN_REMOVED_BEFORE_COMPACT = 64;
+
+    // Slots in insertion order; a removed task leaves a dead slot until the next compaction
+    private int slotCount;
+    private int removedCount;
+    private int[] ids = new int[MIN_CAPACITY];
+    private long[] names = new long[MIN_CAPACITY];
+    private long[] descriptions = new long[MIN_CAPACITY];
+    private int[] categoryCodes = new int[MIN_CAPACITY];
+    private Supplier<String>[] descriptionLoaders = newLoaderArray(MIN_CAPACITY);
+    private final BitSet live = new BitSet();
+    private final BitSet completed = new BitSet();
+
+    // Task ID -> slot
+    private final IntIntMap slotById = new IntIntMap();
+
+    private StringArena nameArena = new StringArena();
+    private TextArena descriptionArena;
+
+    // True when descriptions are kept off-heap and only decoded when asked for
+    private final boolean lazyDescriptions;
+
+    // Category codes; shared with the DAO and the parser
+    private final CategoryDictionary categories;
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param categories the dictionary the category column is encoded with
+     * @param offHeapDescriptions true to keep descriptions in an {@link OffHeapTextArena}
+     * and decode them only when {@link Task#getDescription()} is called
+     */
+    TaskStore(CategoryDictionary categories, boolean offHeapDescriptions) {
+        this.categories = categories;
+        this.descriptionArena = offHeapDescriptions ? new OffHeapTextArena() : new StringArena();
+        this.lazyDescriptions = offHeapDescriptions;
+    }
+
+    /**
+     * @param id the task ID
+     * @return the slot of the task, or -1 if there is none
+     */
+    int slotOf(int id) {
+        return slotById.get(id, -1);
+    }
+
+    /**
+     * Appends a task in a new slot.
+     *
+     * @param task the task
+     * @return the slot it was stored in
+     */
+    int add(Task<Integer> task) {
+        if (slotCount == ids.length) {
+            grow();
+        }
+        int slot = slotCount++;
+        ids[slot] = task.getId();
+        slotById.put(task.getId(), slot);
+        live.set(slot);
+        write(slot, task);
+        return slot;
+    }
+
+    /**
+     * Replaces the task in a slot. The ID stays the same.
+     *
+     * @param slot the slot
+     * @param task the new version of the task
+     */
+    void set(int slot, Task<Integer> task) {
+        nameArena.release(names[slot]);
+        descriptionArena.release(descriptions[slot]);
+        write(slot, task);
+        compactArenasIfNeeded();
+    }
+
+    /**
+     * Removes the task in a slot, compacting the columns once enough slots are dead.
+     * Slots of other tasks may change.
+     *
+     * @param slot the slot
+     */
+    void remove(int slot) {
+        slotById.remove(ids[slot]);
+        nameArena.release(names[slot]);
+        descriptionArena.release(descriptions[slot]);
+        descriptionLoaders[slot] = null;
+        live.clear(slot);
+        completed.clear(slot);
+        removedCount++;
+        if (removedCount >= MIN_REMOVED_BEFORE_COMPACT && removedCount > slotCount / 2) {
+            compact();
+        } else {
+            compactArenasIfNeeded();
+        }
+    }
+
+    /**
+     * Builds a Task from the columns of a slot.
+     *
+     * @param slot the slot of a live task
+     * @return a new Task holding the slot's values
+     */
+    Task<Integer> get(int slot) {
+        return materialize(ids[slot], nameArena.bytes(), names[slot], descriptionArena.reader(), lazyDescriptions,
+                descriptions[slot], descriptionLoaders[slot], completed.get(slot), categories.decode(categoryCodes[slot]));
+    }
+
+    int id(int slot) {
+        return ids[slot];
+    }
+
+    String name(int slot) {
+        return nameArena.get(names[slot]);
+    }
+
+    /**
+     * Checks whether the name in a slot contains a query, ignoring case, without
+     * decoding the name.
+     *
+     * @param slot the slot of a live task
+     * @param foldedQuery the query, case-folded with {@link TrigramIndex#fold(String)}
+     * @return true if the name contains the query
+     */
+    boolean nameContains(int slot, String foldedQuery) {
+        long name = names[slot];
+        if (name == StringArena.NULL) {
+            return false;
+        }
+        byte[] bytes = nameArena.bytes();
+        int last = StringArena.length(name) - foldedQuery.length();
+        for (int start = 0; start <= last; start++) {
+            int i = 0;
+            while (i < foldedQuery.length()
+                    && TrigramIndex.fold(StringArena.charAt(bytes, name, start + i)) == foldedQuery.charAt(i)) {
+                i++;
+            }
+            if (i == foldedQuery.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the names in two slots ignoring case, char by char, without decoding
+     * them. Null names sort first.
+     *
+     * @param slot a slot of a live task
+     * @param otherSlot another slot of a live task
+     * @return a negative number, zero or a positive number as the first name sorts
+     * before, equal to or after the second
+     */
+    int compareNames(int slot, int otherSlot) {
+        long name = names[slot];
+        long other = names[otherSlot];
+        if (name == StringArena.NULL || other == StringArena.NULL) {
+            return Boolean.compare(name != StringArena.NULL, other != StringArena.NULL);
+        }
+        byte[] bytes = nameArena.bytes();
+        int length = Math.min(StringArena.length(name), StringArena.length(other));
+        for (int i = 0; i < length; i++) {
+            char c = TrigramIndex.fold(StringArena.charAt(bytes, name, i));
+            char otherC = TrigramIndex.fold(StringArena.charAt(bytes, other, i));
+            if (c != otherC) {
+                return c - otherC;
+            }
+        }
+        return StringArena.length(name) - StringArena.length(other);
+    }
+
+    boolean isComplete(int slot) {
+        return completed.get(slot);
+    }
+
+    int categoryCode(int slot) {
+        return categoryCodes[slot];
+    }
+
+    /**
+     * @return the number of live tasks
+     */
+    int size() {
+        return slotById.size();
+    }
+
+    /**
+     * @return the number of live completed tasks
+     */
+    int completedCount() {
+        return completed.cardinality();
+    }
+
+    /**
+     * @param from the first slot to look at
+     * @return the first live slot at or after from, or -1
+     */
+    int nextLiveSlot(int from) {
+        return live.nextSetBit(from);
+    }
+
+    /**
+     * @param from the first slot to look at
+     * @return the first live slot at or after from holding a completed task, or -1
+     */
+    int nextCompletedSlot(int from) {
+        return completed.nextSetBit(from);
+    }
+
+    /**
+     * @param from the first slot to look at
+     * @return the first live slot at or after from holding an incomplete task, or -1
+     */
+    int nextIncompleteSlot(int from) {
+        for (int slot = live.nextSetBit(from); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            if (!completed.get(slot)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies the columns of the live tasks into an immutable list. The arenas are
+     * shared rather than copied, because their stored bytes never change.
+     *
+     * @return the live tasks in slot order
+     */
+    List<Task<Integer>> snapshot() {
+        IntList liveSlots = new IntList();
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            liveSlots.add(slot);
+        }
+        return snapshot(liveSlots);
+    }
+
+    /**
+     * Copies the columns of some tasks into an immutable list, like {@link #snapshot()}.
+     *
+     * @param slots the slots of live tasks, in the order the list should have
+     * @return the tasks in those slots
+     */
+    List<Task<Integer>> snapshot(IntList slots) {
+        int size = slots.size();
+        int[] snapshotIds = new int[size];
+        long[] snapshotNames = new long[size];
+        long[] snapshotDescriptions = new long[size];
+        int[] snapshotCodes = new int[size];
+        Supplier<String>[] snapshotLoaders = newLoaderArray(size);
+        BitSet snapshotCompleted = new BitSet(size);
+        for (int index = 0; index < size; index++) {
+            int slot = slots.get(index);
+            snapshotIds[index] = ids[slot];
+            snapshotNames[index] = names[slot];
+            snapshotDescriptions[index] = descriptions[slot];
+            snapshotCodes[index] = categoryCodes[slot];
+            snapshotLoaders[index] = descriptionLoaders[slot];
+            snapshotCompleted.set(index, completed.get(slot));
+        }
+        return new Snapshot(snapshotIds, nameArena.bytes(), snapshotNames, descriptionArena.reader(), lazyDescriptions,
+                snapshotDescriptions, snapshotLoaders, snapshotCompleted, snapshotCodes, categories.names());
+    }
+
+    /**
+     * Stores every field of a task except its ID in a slot.
+     */
+    private void write(int slot, Task<Integer> task) {
+        names[slot] = nameArena.append(task.getName());
+        descriptionLoaders[slot] = task.getDescriptionLoader();
+        if (descriptionLoaders[slot] instanceof StoredDescription) {
+            // A task built by this store; copy its text rather than keep the old arena alive
+            descriptionLoaders[slot] = null;
+        }
+        if (descriptionLoaders[slot] == null) {
+            descriptions[slot] = descriptionArena.append(task.getDescription());
+        } else {
+            // Keep the preview and the loader rather than fetching the full description
+            descriptions[slot] = descriptionArena.append(task.getDescriptionPreview());
+        }
+        completed.set(slot, task.isComplete());
+        categoryCodes[slot] = categories.encode(task.getCategory());
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        descriptionLoaders = Arrays.copyOf(descriptionLoaders, capacity);
+    }
+
+    /**
+     * Closes the gaps left by removed tasks, keeping insertion order, re-points the ID
+     * index at the new slots and drops released strings from the arenas.
+     */
+    private void compact() {
+        StringArena newNames = nameArena.emptyCopy();
+        TextArena newDescriptions = descriptionArena.emptyCopy();
+        int liveCount = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            ids[liveCount] = ids[slot];
+            names[liveCount] = newNames.copyFrom(nameArena, names[slot]);
+            descriptions[liveCount] = newDescriptions.copyFrom(descriptionArena, descriptions[slot]);
+            categoryCodes[liveCount] = categoryCodes[slot];
+            descriptionLoaders[liveCount] = descriptionLoaders[slot];
+            completed.set(liveCount, completed.get(slot));
+            slotById.put(ids[liveCount], liveCount);
+            liveCount++;
+        }
+        Arrays.fill(descriptionLoaders, liveCount, slotCount, null);
+        live.clear();
+        live.set(0, liveCount);
+        completed.clear(liveCount, slotCount);
+        slotCount = liveCount;
+        removedCount = 0;
+        nameArena = newNames;
+        descriptionArena = newDescriptions;
+    }
+
+    /**
+     * Rewrites an arena once most of it is garbage. Slots are left where they are.
+     */
+    private void compactArenasIfNeeded() {
+        if (nameArena.needsCompaction()) {
+            StringArena newNames = nameArena.emptyCopy();
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                names[slot] = newNames.copyFrom(nameArena, names[slot]);
+            }
+            nameArena = newNames;
+        }
+        if (descriptionArena.needsCompaction()) {
+            TextArena newDescriptions = descriptionArena.emptyCopy();
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                descriptions[slot] = newDescriptions.copyFrom(descriptionArena, descriptions[slot]);
+            }
+            descriptionArena = newDescriptions;
+        }
+    }
+
+    private static Task<Integer> materialize(int id, byte[] nameBytes, long name, TextArena.Reader descriptionReader,
+            boolean lazyDescription, long description, Supplier<String> descriptionLoader, boolean complete, String category) {
+        if (descriptionLoader != null) {
+            // Stored a preview; the loader fetches the full description
+            return new Task<>(id, StringArena.decode(nameBytes, name), descriptionReader.get(description),
+                    descriptionLoader, complete, category);
+        }
+        if (lazyDescription && description != TextArena.NULL) {
+            return new Task<>(id, StringArena.decode(nameBytes, name),
+                    descriptionReader.getPrefix(description, Task.DESCRIPTION_PREVIEW_LENGTH),
+                    new StoredDescription(descriptionReader, description), complete, category);
+        }
+        return new Task<>(id, StringArena.decode(nameBytes, name), descriptionReader.get(description),
+                complete, category);
+    }
+
+    /**
+     * @param task a task
+     * @return true if the task's full description is held by a TaskStore, so reading it
+     * does not go to the database
+     */
+    static boolean hasStoredDescription(Task<Integer> task) {
+        return task.getDescriptionLoader() instanceof StoredDescription;
+    }
+
+    /**
+     * Decodes a description kept in an arena when a task built by this store is asked
+     * for it.
+     */
+    private static final class StoredDescription implements Supplier<String> {
+
+        private final TextArena.Reader reader;
+        private final long handle;
+
+        StoredDescription(TextArena.Reader reader, long handle) {
+            this.reader = reader;
+            this.handle = handle;
+        }
+
+        @Override
+        public String get() {
+            return reader.get(handle);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<String>[] newLoaderArray(int length) {
+        return (Supplier<String>[]) new Supplier<?>[length];
+    }
+
+    /**
+     * Immutable copy of the live tasks' columns. Tasks are built on each get.
+     */
+    private static final class Snapshot extends AbstractList<Task<Integer>> implements RandomAccess {
+
+        private final int[] ids;
+        private final byte[] nameBytes;
+        private final long[] names;
+        private final TextArena.Reader descriptionReader;
+        private final boolean lazyDescriptions;
+        private final long[] descriptions;
+        private final Supplier<String>[] descriptionLoaders;
+        private final BitSet completed;
+        private final int[] categoryCodes;
+        private final String[] categoryNames;
+
+        Snapshot(int[] ids, byte[] nameBytes, long[] names, TextArena.Reader descriptionReader, boolean lazyDescriptions,
+                long[] descriptions, Supplier<String>[] descriptionLoaders, BitSet completed, int[] categoryCodes,
+                String[] categoryNames) {
+            this.ids = ids;
+            this.nameBytes = nameBytes;
+            this.names = names;
+            this.descriptionReader = descriptionReader;
+            this.lazyDescriptions = lazyDescriptions;
+            this.descriptions = descriptions;
+            this.descriptionLoaders = descriptionLoaders;
+            this.completed = completed;
+            this.categoryCodes = categoryCodes;
+            this.categoryNames = categoryNames;
+        }
+
+        @Override
+        public Task<Integer> get(int index) {
+            return materialize(ids[index], nameBytes, names[index], descriptionReader, lazyDescriptions,
+                    descriptions[index], descriptionLoaders[index], completed.get(index), categoryNames[categoryCodes[index]]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
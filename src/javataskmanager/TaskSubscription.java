@@ -0,0 +1,65 @@
+package javataskmanager;
+
+import java.util.List;
+
+/**
+ * A query registered with {@link TaskManager#subscribe(TaskQuery, TaskListener)}. Its
+ * listener hears about every task that enters, changes within or leaves the query's
+ * result set until the subscription is closed.
+ */
+public final class TaskSubscription implements AutoCloseable {
+
+    private final TaskManager taskManager;
+    private final TaskQuery query;
+    private final TaskListener listener;
+    private final int categoryCode;
+    private final List<Task<Integer>> initialTasks;
+    private volatile boolean closed;
+
+    TaskSubscription(TaskManager taskManager, TaskQuery query, TaskListener listener, int categoryCode,
+            List<Task<Integer>> initialTasks) {
+        this.taskManager = taskManager;
+        this.query = query;
+        this.listener = listener;
+        this.categoryCode = categoryCode;
+        this.initialTasks = initialTasks;
+    }
+
+    /**
+     * @return the tasks that matched the query when it was subscribed to, in insertion
+     * order; events describe the changes made after that
+     */
+    public List<Task<Integer>> getInitialTasks() {
+        return initialTasks;
+    }
+
+    /**
+     * Stops the events. Events already queued for delivery are dropped.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            taskManager.unsubscribe(this);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    TaskQuery getQuery() {
+        return query;
+    }
+
+    TaskListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return the code of the query's category, or -1 for any category
+     */
+    int getCategoryCode() {
+        return categoryCode;
+    }
+}
@@ -0,0 +1,197 @@
+package javataskmanager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue for task updates and deletes.
+ *
+ * Changes are held in memory and written to the database in batches, each batch in a
+ * single transaction via {@link TaskDAO#applyChanges(List, int[])}. Repeated changes to
+ * the same task collapse into the latest one, so toggling a task ten times costs one
+ * row write. A batch is flushed when it reaches the batch size or when the flush
+ * interval elapses, whichever comes first. Once the queue holds the maximum number of
+ * pending tasks, a change to another task is rejected with an error response instead
+ * of growing the queue or blocking the caller, which is usually the Swing event thread.
+ *
+ * Batches are written one at a time and in order, by the background flusher or by
+ * {@link #close()}. A batch that fails, even with an unexpected exception, completes its
+ * futures with the error and does not stop later flushes.
+ */
+public class TaskWriteBehind {
+
+    private static final int DEFAULT_BATCH_SIZE = 200;
+    private static final int DEFAULT_MAX_PENDING = 10_000;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 250;
+
+    /**
+     * The latest queued change for one task, shared by every caller that changed it
+     * since the last flush.
+     */
+    private static class PendingWrite {
+
+        Task<Integer> task; // null when the task is to be deleted
+        final CompletableFuture<String> future = new CompletableFuture<>();
+    }
+
+    private final TaskDAO taskDao;
+    private final int batchSize;
+    private final int maxPending;
+    private final ScheduledExecutorService flusher;
+
+    // Held while a batch is taken and written, so batches reach the db one at a time
+    private final Object flushLock = new Object();
+
+    // Guarded by this
+    private Map<Integer, PendingWrite> pending = new LinkedHashMap<>();
+    private boolean closed;
+
+    /**
+     * Constructs a write-behind queue with the default batch size, bound and interval.
+     *
+     * @param taskDao the DAO the batches are written through
+     */
+    public TaskWriteBehind(TaskDAO taskDao) {
+        this(taskDao, DEFAULT_BATCH_SIZE, DEFAULT_MAX_PENDING, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Constructs a write-behind queue.
+     *
+     * @param taskDao the DAO the batches are written through
+     * @param batchSize the number of pending tasks that triggers an immediate flush
+     * @param maxPending the number of pending tasks at which changes to other tasks are
+     * rejected
+     * @param flushIntervalMillis the longest time a change waits before being flushed
+     */
+    public TaskWriteBehind(TaskDAO taskDao, int batchSize, int maxPending, long flushIntervalMillis) {
+        this.taskDao = taskDao;
+        this.batchSize = batchSize;
+        this.maxPending = Math.max(maxPending, batchSize);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TaskWriteBehind-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues an update. It replaces any update already queued for the same task, but
+     * never a queued delete.
+     *
+     * @param task the task with updated information
+     * @return a future completed with "Success" or the error once the batch is written
+     */
+    public CompletableFuture<String> updateTask(Task<Integer> task) {
+        return enqueue(task.getId(), task);
+    }
+
+    /**
+     * Queues a delete. It replaces any update already queued for the same task.
+     *
+     * @param id the ID of the task to be deleted
+     * @return a future completed with "Success" or the error once the batch is written
+     */
+    public CompletableFuture<String> deleteTask(int id) {
+        return enqueue(id, null);
+    }
+
+    /**
+     * Writes every queued change now and stops the background flusher. Changes queued
+     * afterwards are rejected. A flush still running is waited for, not overlapped.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(DEFAULT_FLUSH_INTERVAL_MILLIS * 4, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Adds a change to the queue, collapsing it into any change already queued for the
+     * same task. Never blocks.
+     *
+     * @param id the task ID
+     * @param task the updated task, or null for a delete
+     * @return the future shared by all changes to this task in the current batch, or a
+     * completed error response if the queue is closed or full
+     */
+    private synchronized CompletableFuture<String> enqueue(int id, Task<Integer> task) {
+        if (closed) {
+            return CompletableFuture.completedFuture("Error: write-behind queue is closed");
+        }
+        PendingWrite write = pending.get(id);
+        if (write == null && pending.size() >= maxPending) {
+            flusher.execute(this::flush);
+            return CompletableFuture.completedFuture("Error: too many database writes pending, try again");
+        }
+
+        if (write == null) {
+            write = new PendingWrite();
+            write.task = task;
+            pending.put(id, write);
+        } else if (write.task != null) {
+            // A delete always wins over later updates to the same task
+            write.task = task;
+        }
+
+        if (pending.size() >= batchSize) {
+            flusher.execute(this::flush);
+        }
+        return write.future;
+    }
+
+    /**
+     * Writes the current batch in one transaction and completes its futures. Never
+     * throws, so the scheduled flushes keep running.
+     */
+    private void flush() {
+        synchronized (flushLock) {
+            Map<Integer, PendingWrite> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+
+            String response;
+            try {
+                List<Task<Integer>> updates = new ArrayList<>();
+                int[] deleteIds = new int[batch.size()];
+                int deleteCount = 0;
+                for (Map.Entry<Integer, PendingWrite> entry : batch.entrySet()) {
+                    if (entry.getValue().task != null) {
+                        updates.add(entry.getValue().task);
+                    } else {
+                        deleteIds[deleteCount++] = entry.getKey();
+                    }
+                }
+                response = taskDao.applyChanges(updates, Arrays.copyOf(deleteIds, deleteCount));
+            } catch (RuntimeException e) {
+                response = "Error: " + e;
+                System.out.println("An error occurred while writing queued task changes: " + e);
+            }
+            String result = response;
+            batch.values().forEach(write -> write.future.complete(result));
+        }
+    }
+}
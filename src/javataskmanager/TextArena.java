@@ -0,0 +1,76 @@
+package javataskmanager;
+
+/**
+ * Append-only storage for strings, each addressed by a long handle.
+ *
+ * Stored bytes are never overwritten: replacing a string appends the new value and
+ * releases the old one. Growing or compacting an arena moves it into new storage, and
+ * a {@link Reader} obtained earlier keeps reading the storage it was created on, so
+ * snapshots can go on reading while the arena changes.
+ */
+interface TextArena {
+
+    // Handle of a null string
+    long NULL = -1L;
+
+    /**
+     * Appends a string.
+     *
+     * @param value the string, or null
+     * @return the handle of the stored string
+     */
+    long append(String value);
+
+    /**
+     * Marks a stored string as no longer used, so it is dropped by the next compaction.
+     *
+     * @param handle the handle of the string
+     */
+    void release(long handle);
+
+    /**
+     * @return true if at least half of the arena holds released strings
+     */
+    boolean needsCompaction();
+
+    /**
+     * Starts a compacted copy of this arena. Copy every live string across with
+     * {@link #copyFrom(TextArena, long)} and use the new handles from then on.
+     *
+     * @return an empty arena of the same kind, sized for the live strings
+     */
+    TextArena emptyCopy();
+
+    /**
+     * Appends a string stored in another arena of the same kind.
+     *
+     * @param source the arena holding the string
+     * @param handle the handle of the string in the source arena
+     * @return the handle of the string in this arena
+     */
+    long copyFrom(TextArena source, long handle);
+
+    /**
+     * @return a reader for the strings stored so far
+     */
+    Reader reader();
+
+    /**
+     * Reads the strings of an arena. Safe to use from any thread.
+     */
+    interface Reader {
+
+        /**
+         * @param handle the handle of a stored string
+         * @return the string, or null for {@link TextArena#NULL}
+         */
+        String get(long handle);
+
+        /**
+         * @param handle the handle of a stored string
+         * @param maxChars the maximum number of chars to return
+         * @return the first chars of the string, or null for {@link TextArena#NULL}
+         */
+        String getPrefix(long handle, int maxChars);
+    }
+}
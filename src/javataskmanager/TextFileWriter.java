@@ -0,0 +1,160 @@
+package javataskmanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes text to a file as UTF-8, for exports of many tasks.
+ *
+ * Chars are collected in a buffer and encoded in bulk by one reusable encoder into a
+ * large direct buffer, which goes to the file channel only when full. Writing a task
+ * therefore costs no syscall and, with {@link #append(int)} and
+ * {@link #append(boolean)}, no intermediate strings.
+ *
+ * Not thread-safe.
+ */
+final class TextFileWriter implements Appendable, Closeable {
+
+    private static final int CHAR_BUFFER_SIZE = 16 * 1024;
+    private static final int BYTE_BUFFER_SIZE = 256 * 1024;
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+
+    // Digits of the int being appended, last digit first
+    private final char[] digits = new char[10];
+
+    /**
+     * Opens a file for writing, replacing its contents.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be opened
+     */
+    TextFileWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public TextFileWriter append(CharSequence text) throws IOException {
+        return text == null ? append("null") : append(text, 0, text.length());
+    }
+
+    @Override
+    public TextFileWriter append(CharSequence text, int start, int end) throws IOException {
+        if (text == null) {
+            return append("null", start, end);
+        }
+        while (start < end) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int count = Math.min(end - start, chars.remaining());
+            if (text instanceof String) {
+                chars.put((String) text, start, start + count);
+            } else {
+                for (int i = start; i < start + count; i++) {
+                    chars.put(text.charAt(i));
+                }
+            }
+            start += count;
+        }
+        return this;
+    }
+
+    @Override
+    public TextFileWriter append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+        return this;
+    }
+
+    /**
+     * Appends an int in decimal.
+     *
+     * @param value the int
+     * @return this writer
+     * @throws IOException if writing to the file fails
+     */
+    TextFileWriter append(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            return append(Integer.toString(value));
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            append(digits[--count]);
+        }
+        return this;
+    }
+
+    /**
+     * Appends "true" or "false".
+     *
+     * @param value the boolean
+     * @return this writer
+     * @throws IOException if writing to the file fails
+     */
+    TextFileWriter append(boolean value) throws IOException {
+        return append(value ? "true" : "false");
+    }
+
+    /**
+     * Writes everything still buffered and closes the file.
+     *
+     * @throws IOException if writing to the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            encode(true);
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Encodes the buffered chars, draining the byte buffer to the file as it fills. A
+     * surrogate pair split across two calls stays buffered until its second half
+     * arrives.
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (encoder.encode(chars, bytes, endOfInput).isOverflow()) {
+            drain();
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
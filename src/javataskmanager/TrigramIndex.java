@@ -0,0 +1,127 @@
+package javataskmanager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index from the case-folded three-char substrings (trigrams) of task names to the IDs
+ * of the tasks whose names contain them.
+ *
+ * A substring query of three or more chars can only match tasks found in the posting
+ * list of every one of its trigrams, so intersecting those lists, starting from the
+ * shortest, leaves a small set of candidates. Trigrams made of Latin-1 chars map to
+ * distinct keys; others are hashed, and the rare collision only adds candidates, so
+ * every candidate must still be checked against the query.
+ *
+ * Memory: a name of n chars adds up to n - 2 entries, one per distinct trigram, to the
+ * IntSet posting lists. An entry is an int key plus a used flag, and the sets are kept
+ * between 3/8 and 3/4 full, so it costs about 7 to 13 bytes. A 20-char name therefore
+ * costs up to 18 entries, or about 120 to 240 bytes, usually more than the name itself
+ * in the arena. Each distinct trigram also has its own IntSet and map entry, a fixed
+ * cost shared by all the names containing it.
+ *
+ * Not thread-safe: TaskManager guards every call with its lock.
+ */
+final class TrigramIndex {
+
+    // Trigram key -> index of its posting list; lists are kept once emptied
+    private final IntIntMap postingByKey = new IntIntMap();
+    private final List<IntSet> postings = new ArrayList<>();
+
+    /**
+     * Adds a task's name to the index.
+     *
+     * @param id the task ID
+     * @param name the task name, may be null
+     */
+    void add(int id, String name) {
+        if (name == null) {
+            return;
+        }
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            int key = key(fold(name.charAt(i)), fold(name.charAt(i + 1)), fold(name.charAt(i + 2)));
+            int posting = postingByKey.get(key, -1);
+            if (posting < 0) {
+                posting = postings.size();
+                postings.add(new IntSet());
+                postingByKey.put(key, posting);
+            }
+            postings.get(posting).add(id);
+        }
+    }
+
+    /**
+     * Removes a task's name from the index.
+     *
+     * @param id the task ID
+     * @param name the name the task was added with, may be null
+     */
+    void remove(int id, String name) {
+        if (name == null) {
+            return;
+        }
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            int posting = postingByKey.get(key(fold(name.charAt(i)), fold(name.charAt(i + 1)), fold(name.charAt(i + 2))), -1);
+            if (posting >= 0) {
+                postings.get(posting).remove(id);
+            }
+        }
+    }
+
+    /**
+     * Returns the posting lists of every trigram of a query.
+     *
+     * @param foldedQuery the case-folded query, at least three chars long
+     * @return the lists, the shortest first, or null if some trigram occurs in no name
+     */
+    IntSet[] postingsFor(String foldedQuery) {
+        IntSet[] lists = new IntSet[foldedQuery.length() - 2];
+        int shortest = 0;
+        for (int i = 0; i < lists.length; i++) {
+            int posting = postingByKey.get(key(foldedQuery.charAt(i), foldedQuery.charAt(i + 1), foldedQuery.charAt(i + 2)), -1);
+            if (posting < 0 || postings.get(posting).isEmpty()) {
+                return null;
+            }
+            lists[i] = postings.get(posting);
+            if (lists[i].size() < lists[shortest].size()) {
+                shortest = i;
+            }
+        }
+        IntSet first = lists[shortest];
+        lists[shortest] = lists[0];
+        lists[0] = first;
+        return lists;
+    }
+
+    /**
+     * Case-folds a char the same way for indexed names and queries.
+     *
+     * @param c the char
+     * @return its lower-case form
+     */
+    static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Case-folds a query.
+     *
+     * @param query the query
+     * @return the query with every char folded by {@link #fold(char)}
+     */
+    static String fold(String query) {
+        char[] folded = new char[query.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(query.charAt(i));
+        }
+        return new String(folded);
+    }
+
+    private static int key(char a, char b, char c) {
+        if ((a | b | c) <= 0xFF) {
+            return (a << 16) | (b << 8) | c;
+        }
+        // Outside Latin-1: hash into the keys above 2^24, which Latin-1 trigrams never use
+        return 0x01000000 | (((a * 31 + b) * 31 + c) & 0x00FFFFFF);
+    }
+}
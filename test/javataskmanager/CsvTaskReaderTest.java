@@ -0,0 +1,131 @@
+package javataskmanager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link CsvTaskReader} on RFC 4180 input and on files written by
+ * {@link TaskManager#exportTasksToCSV(String)}.
+ */
+public class CsvTaskReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsQuotedFieldsWithCommasAndDoubledQuotes() throws IOException {
+        List<Task<Integer>> tasks = read("ID,Name,Description,CompletionStatus,Category\n"
+                + "1,\"a, b\",\"say \"\"hi\"\"\",true,\"x,y\"\n");
+        assertEquals(1, tasks.size());
+        assertTask(tasks.get(0), 1, "a, b", "say \"hi\"", true, "x,y");
+    }
+
+    @Test
+    public void keepsLineBreaksInsideQuotes() throws IOException {
+        List<Task<Integer>> tasks = read("1,name,\"first\r\nsecond\nthird\rfourth\",false,c\r\n"
+                + "2,next,d,false,c\r\n");
+        assertEquals(2, tasks.size());
+        assertTask(tasks.get(0), 1, "name", "first\r\nsecond\nthird\rfourth", false, "c");
+        assertTask(tasks.get(1), 2, "next", "d", false, "c");
+    }
+
+    @Test
+    public void readsLastRecordWithoutLineBreak() throws IOException {
+        List<Task<Integer>> tasks = read("1,a,b,true,c\n2,d,\"e\",false,f");
+        assertEquals(2, tasks.size());
+        assertTask(tasks.get(1), 2, "d", "e", false, "f");
+    }
+
+    @Test
+    public void readsEmptyDescriptionAndCategoryAsNull() throws IOException {
+        List<Task<Integer>> tasks = read("1,a,,false,\n");
+        assertEquals(1, tasks.size());
+        assertTask(tasks.get(0), 1, "a", null, false, null);
+    }
+
+    @Test
+    public void skipsRecordsThatAreNotTasks() throws IOException {
+        List<Task<Integer>> tasks = read("ID,Name,Description,CompletionStatus,Category\n"
+                + "\n"
+                + "x,a,b,true,c\n"
+                + "2,too,few,true\n"
+                + "3,too,many,true,c,extra\n"
+                + "4,a,b,true,c\n");
+        assertEquals(1, tasks.size());
+        assertEquals(Integer.valueOf(4), tasks.get(0).getId());
+    }
+
+    @Test
+    public void readsFieldsLongerThanBuffer() throws IOException {
+        String description = "\"quoted\", " + "long ".repeat(30_000) + "\n end";
+        List<Task<Integer>> tasks = read("1,a,\"" + description.replace("\"", "\"\"") + "\",true,c\n");
+        assertEquals(1, tasks.size());
+        assertEquals(description, tasks.get(0).getDescription());
+    }
+
+    @Test
+    public void readsWhatTheExportWrote() throws IOException {
+        List<Task<Integer>> exported = Arrays.asList(
+                new Task<>(1, "plain", "text", false, "Work"),
+                new Task<>(2, "comma, name", "quote \" and \"\"", true, "a,b"),
+                new Task<>(3, "lines", "one\ntwo\r\nthree\r", false, null),
+                new Task<>(4, "no description", null, true, "Work"),
+                new Task<>(5, "", "", false, ""));
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTasks(new ArrayList<>(exported));
+        Path file = folder.newFile().toPath();
+        taskManager.exportTasksToCSV(file.toString());
+
+        List<Task<Integer>> imported = read(Files.readString(file));
+        assertEquals(exported.size(), imported.size());
+        for (int i = 0; i < 4; i++) {
+            Task<Integer> task = exported.get(i);
+            assertTask(imported.get(i), task.getId(), task.getName(), task.getDescription(), task.isComplete(), task.getCategory());
+        }
+        // Empty and null cannot be told apart once exported
+        assertTask(imported.get(4), 5, "", null, false, null);
+    }
+
+    @Test
+    public void endsAtEndOfInput() throws IOException {
+        try (CsvTaskReader reader = new CsvTaskReader(new StringReader(""), new CategoryDictionary())) {
+            assertNull(reader.next());
+        }
+    }
+
+    private static List<Task<Integer>> read(String csv) throws IOException {
+        List<Task<Integer>> tasks = new ArrayList<>();
+        try (CsvTaskReader reader = new CsvTaskReader(new StringReader(csv), new CategoryDictionary())) {
+            Task<Integer> task;
+            while ((task = reader.next()) != null) {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    private static void assertTask(Task<Integer> task, int id, String name, String description, boolean complete, String category) {
+        assertEquals(Integer.valueOf(id), task.getId());
+        assertEquals(name, task.getName());
+        assertEquals(description, task.getDescription());
+        if (complete) {
+            assertTrue(task.isComplete());
+        } else {
+            assertFalse(task.isComplete());
+        }
+        assertEquals(category, task.getCategory());
+    }
+}
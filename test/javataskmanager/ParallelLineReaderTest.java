@@ -0,0 +1,161 @@
+package javataskmanager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link ParallelLineReader} on lines longer than its 64K-char decode buffer, and
+ * on files split into several chunks.
+ */
+public class ParallelLineReaderTest {
+
+    private static final int CHAR_BUFFER_SIZE = 64 * 1024;
+
+    // A file of 3 to 4 MB is split into three chunks on any number of workers: one per
+    // 1 MB, at most four per worker
+    private static final int MULTI_CHUNK_SIZE = 3 * 1024 * 1024 + 30_000;
+    private static final int CHUNKS = 3;
+    private static final int CHUNK_SIZE = (MULTI_CHUNK_SIZE + CHUNKS - 1) / CHUNKS;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 10_000)
+    public void readsAsciiLineLongerThanBuffer() throws IOException {
+        String longLine = "a".repeat(3 * CHAR_BUFFER_SIZE + 17);
+        assertEquals(List.of(longLine, "next"), readLines(longLine + "\nnext\n"));
+    }
+
+    @Test(timeout = 10_000)
+    public void readsLineLongerThanBufferWithSurrogatePairAtItsEnd() throws IOException {
+        // Put the pair at each offset around the end of the buffer, including the one
+        // where a single free char is left for it
+        for (int prefix = CHAR_BUFFER_SIZE - 3; prefix <= CHAR_BUFFER_SIZE + 1; prefix++) {
+            String longLine = "b".repeat(prefix) + "😀" + "c".repeat(CHAR_BUFFER_SIZE);
+            assertEquals("prefix " + prefix, List.of(longLine, "next"), readLines(longLine + "\r\nnext"));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void readsLineLongerThanBufferAfterShortLines() throws IOException {
+        // The short lines are parsed first, so the long one starts part way into the buffer
+        List<String> lines = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            lines.add("line " + i);
+        }
+        lines.add("é😀".repeat(CHAR_BUFFER_SIZE));
+        lines.add("last");
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        assertEquals(lines, readLines(text.toString()));
+    }
+
+    @Test(timeout = 30_000)
+    public void splitsLinesAcrossChunksInFileOrder() throws IOException {
+        byte[] bytes = randomLines(1);
+
+        // A "\r\n" split by the first boundary, and a two-byte char by the second
+        bytes[CHUNK_SIZE - 1] = '\r';
+        bytes[CHUNK_SIZE] = '\n';
+        bytes[2 * CHUNK_SIZE - 1] = (byte) 0xC3;
+        bytes[2 * CHUNK_SIZE] = (byte) 0xA9;
+        assertReadsLikeBufferedReader(bytes);
+    }
+
+    @Test(timeout = 30_000)
+    public void startsChunksRightAfterLineBreaks() throws IOException {
+        byte[] bytes = randomLines(2);
+
+        // Lines ending on the last byte of the first chunk, and a lone "\r" ending on
+        // the last byte of the second
+        bytes[CHUNK_SIZE - 1] = '\n';
+        bytes[2 * CHUNK_SIZE - 1] = '\r';
+        bytes[2 * CHUNK_SIZE] = 'x';
+        assertReadsLikeBufferedReader(bytes);
+    }
+
+    @Test(timeout = 30_000)
+    public void readsLineSpanningWholeChunk() throws IOException {
+        // The middle chunk holds no line start, so its results are empty
+        byte[] bytes = randomLines(3);
+        Arrays.fill(bytes, CHUNK_SIZE - 100, 2 * CHUNK_SIZE + 100, (byte) 'y');
+        assertReadsLikeBufferedReader(bytes);
+    }
+
+    @Test(timeout = 30_000)
+    public void stopsWhenConsumerSaysSo() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, randomLines(4));
+        int[] chunks = {0};
+        boolean finished = ParallelLineReader.read(file, () -> (chars, from, to) -> "", chunk -> ++chunks[0] < 2);
+        assertEquals(false, finished);
+        assertEquals(2, chunks[0]);
+    }
+
+    /**
+     * Reads a file with ParallelLineReader and checks it finds the same lines as
+     * BufferedReader.readLine, in the same order, one result list per chunk.
+     */
+    private void assertReadsLikeBufferedReader(byte[] bytes) throws IOException {
+        List<String> expected = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(new String(bytes, StandardCharsets.UTF_8)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                expected.add(line);
+            }
+        }
+
+        Path file = folder.newFile().toPath();
+        Files.write(file, bytes);
+        List<String> lines = new ArrayList<>();
+        int[] chunks = {0};
+        ParallelLineReader.read(file, () -> (chars, from, to) -> new String(chars, from, to - from), chunk -> {
+            chunks[0]++;
+            lines.addAll(chunk);
+            return true;
+        });
+        assertEquals(CHUNKS, chunks[0]);
+        assertEquals(expected, lines);
+    }
+
+    /**
+     * @return {@value #MULTI_CHUNK_SIZE} bytes of numbered ASCII lines of random length,
+     * ending in "\n", "\r\n" or "\r"
+     */
+    private static byte[] randomLines(long seed) {
+        Random random = new Random(seed);
+        String[] terminators = {"\n", "\r\n", "\r"};
+        StringBuilder text = new StringBuilder(MULTI_CHUNK_SIZE + 200);
+        for (int line = 0; text.length() < MULTI_CHUNK_SIZE; line++) {
+            text.append(line).append(':').append("z".repeat(random.nextInt(120)));
+            text.append(terminators[random.nextInt(terminators.length)]);
+        }
+        return Arrays.copyOf(text.toString().getBytes(StandardCharsets.US_ASCII), MULTI_CHUNK_SIZE);
+    }
+
+    private List<String> readLines(String text) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>();
+        ParallelLineReader.read(file, () -> (chars, from, to) -> new String(chars, from, to - from), chunk -> {
+            lines.addAll(chunk);
+            return true;
+        });
+        return lines;
+    }
+}
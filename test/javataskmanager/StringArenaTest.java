@@ -0,0 +1,48 @@
+package javataskmanager;
+
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that {@link StringArena} returns every string exactly as it was appended.
+ */
+public class StringArenaTest {
+
+    @Test
+    public void returnsLatin1AndWideStrings() {
+        StringArena arena = new StringArena();
+        long latin1 = arena.append("café");
+        long wide = arena.append("task 😀 ✓");
+        long empty = arena.append("");
+        assertEquals("café", arena.get(latin1));
+        assertEquals("task 😀 ✓", arena.get(wide));
+        assertEquals("", arena.get(empty));
+        assertNull(arena.get(arena.append(null)));
+    }
+
+    @Test
+    public void keepsUnpairedSurrogates() {
+        StringArena arena = new StringArena();
+        String[] values = {"\uD83D", "a\uDE00b", "\uDE00\uD83D", "x\uD83D😀\uDE00"};
+        for (String value : values) {
+            assertEquals(value, arena.get(arena.append(value)));
+        }
+    }
+
+    @Test
+    public void keepsRandomCharUnits() {
+        StringArena arena = new StringArena();
+        Random random = new Random(19);
+        for (int i = 0; i < 1_000; i++) {
+            char[] chars = new char[random.nextInt(300)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) random.nextInt(Character.MAX_VALUE + 1);
+            }
+            String value = new String(chars);
+            assertEquals(value, arena.get(arena.append(value)));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package javataskmanager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link TaskLineParser} and its round-trip with
+ * {@link TaskManager#saveTasksToFile(String)}.
+ */
+public class TaskLineParserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final TaskLineParser parser = new TaskLineParser(new CategoryDictionary());
+
+    @Test
+    public void parsesPlainLine() {
+        Task<Integer> task = parse(" 12 | name |description| TRUE |Work ");
+        assertEquals(Integer.valueOf(12), task.getId());
+        assertEquals("name", task.getName());
+        assertEquals("description", task.getDescription());
+        assertTrue(task.isComplete());
+        assertEquals("Work", task.getCategory());
+    }
+
+    @Test
+    public void unescapesBackslashesPipesAndLineBreaks() {
+        Task<Integer> task = parse("1|a\\|b|one\\ntwo\\r\\nthree \\\\ end|false|x\\|y");
+        assertEquals("a|b", task.getName());
+        assertEquals("one\ntwo\r\nthree \\ end", task.getDescription());
+        assertFalse(task.isComplete());
+        assertEquals("x|y", task.getCategory());
+    }
+
+    @Test
+    public void readsEmptyLastField() {
+        Task<Integer> task = parse("1|a|b|true|");
+        assertEquals("", task.getCategory());
+    }
+
+    @Test
+    public void keepsOtherBackslashPairsOfOlderFiles() {
+        Task<Integer> task = parse("1|C:\\temp\\x|tab\\tand\\q|false|c\\");
+        assertEquals("C:\\temp\\x", task.getName());
+        assertEquals("tab\\tand\\q", task.getDescription());
+        assertEquals("c\\", task.getCategory());
+    }
+
+    @Test
+    public void rejectsInvalidLines() {
+        assertNull(parse("1|too|few|true"));
+        assertNull(parse("1|too|many|true|c|d"));
+        assertNull(parse("x|bad|id|true|c"));
+        assertNull(parse("99999999999|id|out of range|true|c"));
+        assertNull(parse(""));
+    }
+
+    @Test
+    public void readsBackWhatSaveTasksToFileWrote() throws IOException {
+        // Values never start or end with a space, as fields are trimmed
+        Random random = new Random(24);
+        String[] pieces = {"a", "b", "|", "\\", "\n", "\r", "\r\n", "\\n", "é", "😀", " "};
+        List<Task<Integer>> saved = new ArrayList<>();
+        for (int id = 1; id <= 20_000; id++) {
+            saved.add(new Task<>(id, randomValue(random, pieces), randomValue(random, pieces), random.nextBoolean(), randomValue(random, pieces)));
+        }
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTasks(new ArrayList<>(saved));
+        Path file = folder.newFile().toPath();
+        taskManager.saveTasksToFile(file.toString());
+
+        List<Task<Integer>> read = new ArrayList<>();
+        ParallelLineReader.read(file, () -> new TaskLineParser(new CategoryDictionary()), chunk -> {
+            read.addAll(chunk);
+            return true;
+        });
+        assertEquals(saved.size(), read.size());
+        for (int i = 0; i < saved.size(); i++) {
+            Task<Integer> expected = saved.get(i);
+            Task<Integer> actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.isComplete(), actual.isComplete());
+            assertEquals(expected.getCategory(), actual.getCategory());
+        }
+    }
+
+    private Task<Integer> parse(String line) {
+        return parser.parse(line.toCharArray(), 0, line.length());
+    }
+
+    private static String randomValue(Random random, String[] pieces) {
+        StringBuilder value = new StringBuilder("x");
+        for (int i = random.nextInt(12); i > 0; i--) {
+            value.append(pieces[random.nextInt(pieces.length)]);
+        }
+        return value.append('x').toString();
+    }
+}